@@ -0,0 +1,182 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Optional.empty;
+import static java.util.Optional.ofNullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link MoreSuppliers.CloseableSupplier} 的无锁版本，用于jdk9+
+ * <p>{@link MoreSuppliers.CloseableSupplier#get()} 每次调用都要读取initialized和closing两个volatile字段；
+ * 本实现只有一个状态字段，通过 {@link VarHandle} 以acquire/release语义访问：未初始化时为null，进入加锁的初始化逻辑，
+ * 初始化后指向一个只有final字段的不可变对象，热路径上只有一次acquire读和一次final字段读，x86上与普通读没有区别。</p>
+ * <p>{@link #tryClose} 会先把状态清空再释放值，关闭过程中的 {@link #get()} 会在锁上等待关闭结束后重新初始化，
+ * 与 {@link MoreSuppliers.CloseableSupplier} 的行为一致。</p>
+ */
+@ThreadSafe
+public final class StableLazySupplier<T> implements Supplier<T> {
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(StableLazySupplier.class, "state", Constant.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Supplier<T> delegate;
+    private final boolean resetAfterClose;
+
+    /**
+     * 未初始化时为null，只通过 {@link #STATE} 访问
+     */
+    @SuppressWarnings("unused")
+    private Constant<T> state;
+
+    private StableLazySupplier(Supplier<T> delegate, boolean resetAfterClose) {
+        this.delegate = delegate;
+        this.resetAfterClose = resetAfterClose;
+    }
+
+    /**
+     * @see MoreSuppliers#lazy(Supplier)
+     */
+    @Nonnull
+    public static <T> StableLazySupplier<T> stableLazy(@Nonnull Supplier<T> delegate) {
+        return stableLazy(delegate, true);
+    }
+
+    /**
+     * @see MoreSuppliers#lazy(Supplier, boolean)
+     */
+    @Nonnull
+    public static <T> StableLazySupplier<T> stableLazy(@Nonnull Supplier<T> delegate, boolean resetAfterClose) {
+        if (delegate instanceof StableLazySupplier) {
+            return (StableLazySupplier<T>) delegate;
+        }
+        return new StableLazySupplier<>(checkNotNull(delegate), resetAfterClose);
+    }
+
+    @Override
+    public T get() {
+        Object current = STATE.getAcquire(this);
+        if (current != null) {
+            return constant(current);
+        }
+        return initialize();
+    }
+
+    private T initialize() {
+        synchronized (this) {
+            Object current = STATE.get(this);
+            if (current != null) {
+                return constant(current);
+            }
+            T t = delegate.get();
+            STATE.setRelease(this, new Constant<>(t));
+            return t;
+        }
+    }
+
+    /**
+     * @return 是否获取过初始值
+     */
+    public boolean isInitialized() {
+        return STATE.getAcquire(this) != null;
+    }
+
+    /**
+     * 使用当前缓存的值
+     */
+    public <X extends Throwable> void ifPresent(ThrowableConsumer<T, X> consumer) throws X {
+        synchronized (this) {
+            Object current = STATE.get(this);
+            if (current != null) {
+                T value = constant(current);
+                if (value != null) {
+                    consumer.accept(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 将当前初始化的值转换类型并返回
+     */
+    public <U> Optional<U> map(Function<? super T, ? extends U> mapper) {
+        checkNotNull(mapper);
+        synchronized (this) {
+            Object current = STATE.get(this);
+            if (current != null) {
+                T value = constant(current);
+                if (value != null) {
+                    return ofNullable(mapper.apply(value));
+                }
+            }
+            return empty();
+        }
+    }
+
+    /**
+     * 尝试释放当前缓存的值，是否真正执行释放取决于resetAfterClose
+     */
+    public void tryClose() {
+        tryClose(i -> { });
+    }
+
+    /**
+     * 尝试释放当前缓存的值，是否真正执行释放取决于resetAfterClose，在释放前执行一个函数以帮助销毁资源等操作
+     */
+    public <X extends Throwable> void tryClose(ThrowableConsumer<T, X> close) throws X {
+        synchronized (this) {
+            Object current = STATE.get(this);
+            if (current != null) {
+                if (resetAfterClose) {
+                    // 之后的get()进入初始化逻辑，在锁上等待关闭结束
+                    STATE.setRelease(this, null);
+                }
+                try {
+                    close.accept(constant(current));
+                } catch (Throwable e) {
+                    // 关闭失败时保留原来的值
+                    STATE.setRelease(this, current);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T constant(Object state) {
+        return ((Constant<T>) state).value;
+    }
+
+    @Override
+    public String toString() {
+        Object current = STATE.getAcquire(this);
+        if (current != null) {
+            return "MoreSuppliers.lazy(" + constant(current) + ")";
+        } else {
+            return "MoreSuppliers.lazy(" + delegate + ")";
+        }
+    }
+
+    private static final class Constant<T> {
+
+        private final T value;
+
+        private Constant(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.github.phantomthief.util.StableLazySupplier.stableLazy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 比较初始化之后 {@link MoreSuppliers#lazy} 和 {@link StableLazySupplier#stableLazy} 的读取开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class StableLazySupplierBenchmark {
+
+    private final Supplier<Object> lazy = lazy(Object::new);
+    private final Supplier<Object> stable = stableLazy(Object::new);
+
+    @Benchmark
+    public Object testLazy() {
+        return lazy.get();
+    }
+
+    @Benchmark
+    public Object testStableLazy() {
+        return stable.get();
+    }
+}
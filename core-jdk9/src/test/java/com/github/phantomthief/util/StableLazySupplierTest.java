@@ -0,0 +1,113 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.StableLazySupplier.stableLazy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class StableLazySupplierTest {
+
+    @Test
+    void test() {
+        int[] counter = { 0 };
+        StableLazySupplier<String> supplier = stableLazy(() -> {
+            counter[0]++;
+            return "test";
+        });
+        assertSame(supplier, stableLazy(supplier));
+        assertFalse(supplier.isInitialized());
+        assertEquals(Optional.empty(), supplier.map(String::length));
+        assertEquals("test", supplier.get());
+        assertEquals("test", supplier.get());
+        assertEquals(1, counter[0]);
+        assertTrue(supplier.isInitialized());
+        assertEquals(Optional.of(4), supplier.map(String::length));
+        supplier.tryClose();
+        assertFalse(supplier.isInitialized());
+        assertEquals("test", supplier.get());
+        assertEquals(2, counter[0]);
+    }
+
+    @Test
+    void testNull() {
+        int[] counter = { 0 };
+        StableLazySupplier<String> supplier = stableLazy(() -> {
+            counter[0]++;
+            return null;
+        });
+        assertNull(supplier.get());
+        assertNull(supplier.get());
+        assertEquals(1, counter[0]);
+        supplier.ifPresent(it -> counter[0]++);
+        assertEquals(1, counter[0]);
+        supplier.tryClose();
+        assertNull(supplier.get());
+        assertEquals(2, counter[0]);
+    }
+
+    @Test
+    void testNotReset() {
+        int[] counter = { 0 };
+        StableLazySupplier<String> supplier = stableLazy(() -> {
+            counter[0]++;
+            return "test";
+        }, false);
+        supplier.get();
+        int[] closed = { 0 };
+        supplier.tryClose(it -> closed[0]++);
+        assertEquals(1, closed[0]);
+        assertTrue(supplier.isInitialized());
+        assertEquals("test", supplier.get());
+        assertEquals(1, counter[0]);
+    }
+
+    @Test
+    void testCloseFailed() {
+        StableLazySupplier<String> supplier = stableLazy(() -> "test");
+        supplier.get();
+        assertThrows(IllegalStateException.class, () -> supplier.tryClose(it -> {
+            throw new IllegalStateException();
+        }));
+        assertTrue(supplier.isInitialized());
+    }
+
+    @Test
+    void testConcurrent() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        StableLazySupplier<Integer> supplier = stableLazy(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return counter.incrementAndGet();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(supplier::get);
+            }
+            latch.countDown();
+            for (Future<?> future : futures) {
+                assertEquals(1, future.get());
+            }
+            assertEquals(1, counter.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.github.phantomthief.concurrent;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.System.nanoTime;
+import static java.time.Duration.ofMillis;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+
+import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * 基于时间轮（Hashed Wheel）的轻量级定时器
+ * <p>添加和取消定时任务的开销都是O(1)，适用于海量、短小、对精度要求不高（精度为一个tick）的超时与延迟任务，
+ * 所有任务共享一个后台线程，到期的任务直接在该线程上执行，因此任务本身必须简短，耗时的操作请转交给其它执行器。</p>
+ * <p>一般直接使用 {@link #sharedTimer()} 即可，无需自行创建。</p>
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    private static final Logger logger = getLogger(HashedWheelTimer.class);
+
+    private static final Duration DEFAULT_TICK = ofMillis(10);
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    /**
+     * 每个tick最多从待添加队列中转移的任务数，避免大量提交时worker线程长时间无法处理到期任务
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    private static final CloseableSupplier<HashedWheelTimer> SHARED = lazy(
+            () -> new HashedWheelTimer("more-lambdas-timer", DEFAULT_TICK, DEFAULT_TICKS_PER_WHEEL));
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Thread workerThread;
+
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_STATE_INIT);
+    private final CountDownLatch startLatch = new CountDownLatch(1);
+    private final Queue<TimeoutImpl> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutImpl> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final LongAdder pending = new LongAdder();
+
+    private volatile long startTime;
+
+    /**
+     * 创建一个时间轮定时器，worker线程会在首次添加任务时启动
+     *
+     * @param threadName worker线程名称
+     * @param tick 时间轮每格的时长，也是定时器的精度
+     * @param ticksPerWheel 时间轮的格数，会向上取整为2的幂
+     */
+    public HashedWheelTimer(@Nonnull String threadName, @Nonnull Duration tick, int ticksPerWheel) {
+        checkNotNull(threadName);
+        checkNotNull(tick);
+        checkArgument(ticksPerWheel > 0 && ticksPerWheel <= 1 << 30, "invalid ticksPerWheel:%s", ticksPerWheel);
+        this.tickNanos = tick.toNanos();
+        checkArgument(tickNanos > 0, "invalid tick:%s", tick);
+        int normalized = 1;
+        while (normalized < ticksPerWheel) {
+            normalized <<= 1;
+        }
+        checkArgument(tickNanos < Long.MAX_VALUE / normalized, "tick is too large:%s", tick);
+        this.wheel = new Bucket[normalized];
+        for (int i = 0; i < normalized; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = normalized - 1;
+        this.workerThread = new ThreadFactoryBuilder()
+                .setNameFormat(threadName)
+                .setDaemon(true)
+                .build()
+                .newThread(new Worker());
+    }
+
+    /**
+     * 获取全局共享的定时器，精度为10ms，请不要关闭它
+     */
+    @Nonnull
+    public static HashedWheelTimer sharedTimer() {
+        return SHARED.get();
+    }
+
+    /**
+     * 添加一个定时任务
+     *
+     * @param task 到期时执行的任务，会在定时器的worker线程中执行，必须简短且不阻塞
+     * @param delay 延迟时间
+     * @param unit 延迟时间单位
+     * @return 定时任务句柄，可以用来取消任务
+     * @throws IllegalStateException 定时器已经关闭时抛出
+     */
+    @Nonnull
+    public Timeout newTimeout(@Nonnull Runnable task, @Nonnegative long delay, @Nonnull TimeUnit unit) {
+        checkNotNull(task);
+        checkNotNull(unit);
+        start();
+        long deadline = nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        if (delay > 0 && deadline < 0) { // overflow
+            deadline = Long.MAX_VALUE;
+        }
+        TimeoutImpl timeout = new TimeoutImpl(this, task, deadline);
+        pending.increment();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 添加一个定时任务
+     *
+     * @see #newTimeout(Runnable, long, TimeUnit)
+     */
+    @Nonnull
+    public Timeout newTimeout(@Nonnull Runnable task, @Nonnull Duration delay) {
+        checkNotNull(delay);
+        return newTimeout(task, toNanosSaturated(delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 与{@link Duration#toNanos()}相同，但超出long范围时截断而不是抛出{@link ArithmeticException}
+     */
+    static long toNanosSaturated(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return 尚未到期也未被取消的任务数
+     */
+    public long pendingTimeouts() {
+        return pending.sum();
+    }
+
+    private void start() {
+        while (true) {
+            int state = workerState.get();
+            if (state == WORKER_STATE_STARTED) {
+                break;
+            }
+            checkState(state == WORKER_STATE_INIT, "timer was already closed.");
+            if (workerState.compareAndSet(WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                workerThread.start();
+                break;
+            }
+            // CAS失败时可能是被并发关闭了，重新检查状态
+        }
+        if (startTime == 0) {
+            Uninterruptibles.awaitUninterruptibly(startLatch);
+            // worker从未启动就被关闭时，close()会直接放行等待的线程
+            checkState(startTime != 0, "timer was already closed.");
+        }
+    }
+
+    /**
+     * 关闭定时器，所有未到期的任务将不再执行
+     */
+    @Override
+    public void close() {
+        checkState(!SHARED.isInitialized() || this != SHARED.get(), "cannot close shared timer.");
+        int previous = workerState.getAndSet(WORKER_STATE_SHUTDOWN);
+        if (previous == WORKER_STATE_STARTED) {
+            workerThread.interrupt();
+            if (Thread.currentThread() != workerThread) {
+                Uninterruptibles.joinUninterruptibly(workerThread);
+            }
+        } else if (previous == WORKER_STATE_INIT) {
+            startLatch.countDown();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            long now = nanoTime();
+            // 0 is used as the uninitialized value
+            startTime = now == 0 ? 1 : now;
+            startLatch.countDown();
+
+            while (workerState.get() == WORKER_STATE_STARTED) {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    Bucket bucket = wheel[(int) (tick & mask)];
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    bucket.expireTimeouts(deadline);
+                    tick++;
+                }
+            }
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            while (true) {
+                long current = nanoTime() - startTime;
+                long sleepNanos = deadline - current;
+                if (sleepNanos <= 0) {
+                    return current;
+                }
+                LockSupport.parkNanos(this, sleepNanos);
+                if (workerState.get() != WORKER_STATE_STARTED) {
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                TimeoutImpl timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() != TimeoutImpl.ST_INIT) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // 已经过期的任务放到当前格，马上执行
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            TimeoutImpl timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                timeout.remove();
+            }
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public interface Timeout {
+
+        /**
+         * 取消任务，O(1)
+         *
+         * @return 如果任务还未执行且本次取消成功，返回 {@code true}
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private static final class TimeoutImpl implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<TimeoutImpl> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(TimeoutImpl.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        /**
+         * 以下字段只会被worker线程访问
+         */
+        private long remainingRounds;
+        private TimeoutImpl next;
+        private TimeoutImpl prev;
+        private Bucket bucket;
+
+        TimeoutImpl(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrement();
+            // 由worker线程在下一个tick从时间轮上摘除
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        void remove() {
+            Bucket b = this.bucket;
+            if (b != null) {
+                b.remove(this);
+            }
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pending.decrement();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout{deadline=" + deadline + ", state=" + state + ", task=" + task + "}";
+        }
+    }
+
+    /**
+     * 时间轮上的一格，双向链表，只会被worker线程访问
+     */
+    private static final class Bucket {
+
+        private TimeoutImpl head;
+        private TimeoutImpl tail;
+
+        void add(TimeoutImpl timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline) {
+            TimeoutImpl timeout = head;
+            while (timeout != null) {
+                TimeoutImpl next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(TimeoutImpl timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            TimeoutImpl next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
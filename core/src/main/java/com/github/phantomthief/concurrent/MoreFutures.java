@@ -4,12 +4,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
 import static java.lang.System.nanoTime;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import java.time.Duration;
-import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -29,6 +28,7 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.phantomthief.util.Deadline;
 import com.github.phantomthief.util.ThrowableConsumer;
 import com.github.phantomthief.util.ThrowableFunction;
 import com.github.phantomthief.util.ThrowableRunnable;
@@ -37,6 +37,7 @@ import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.ExecutionError;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 
@@ -206,6 +207,7 @@ public class MoreFutures {
      *  // 注意这里的线程池executor.submit操作可能失败和阻塞，需要妥善处理
      *  Map<Integer, User> success = tryWait(list, 1, SECONDS, id -> executor.submit(() -> retrieve(id)));
      * }</pre>
+     * <p>在 {@link Deadline} 范围内调用时，等待时间不会超过截止时间；截止时间已过时，剩余的Key不再调用asyncFunc，按超时处理</p>
      *
      * @param keys 要获取值的Key，作为输入值，通过asyncFunc参数传入的函数转换为Future对象
      * @param timeout 超时时间
@@ -231,56 +233,74 @@ public class MoreFutures {
         checkNotNull(unit);
         checkNotNull(asyncFunc);
 
-        Map<Future<? extends V>, V> successMap = new LinkedHashMap<>();
-        Map<Future<? extends V>, Throwable> failMap = new LinkedHashMap<>();
-        Map<Future<? extends V>, TimeoutException> timeoutMap = new LinkedHashMap<>();
-        Map<Future<? extends V>, CancellationException> cancelMap = new LinkedHashMap<>();
+        int capacity = keys instanceof Collection ? ((Collection<?>) keys).size() : 16;
+        Object[] keyArray = new Object[capacity];
+        Future<?>[] futures = new Future<?>[capacity];
+        int size = 0;
 
         long remainingNanos = unit.toNanos(timeout);
+        // 在截止时间内调用时，不会等待超过截止时间
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            remainingNanos = Math.min(remainingNanos, deadline.remainingNanos());
+        }
         long end = nanoTime() + remainingNanos;
 
-        Map<Future<? extends V>, K> futureKeyMap = new IdentityHashMap<>();
         for (K key : keys) {
             checkNotNull(key);
-            Future<V> future = asyncFunc.apply(key);
-            checkNotNull(future);
-            futureKeyMap.put(future, key);
+            Future<V> future;
+            if (deadline != null && deadline.isExpired()) {
+                // 截止时间已过，不再发起新的调用，按超时处理
+                future = SettableFuture.create();
+            } else {
+                future = checkNotNull(asyncFunc.apply(key));
+            }
+            if (size == keyArray.length) {
+                int newCapacity = Math.max(16, size + (size >> 1));
+                keyArray = Arrays.copyOf(keyArray, newCapacity);
+                futures = Arrays.copyOf(futures, newCapacity);
+            }
+            keyArray[size] = key;
+            futures[size] = future;
+            size++;
         }
-        for (Future<? extends V> future : futureKeyMap.keySet()) {
+        byte[] states = new byte[size];
+        Object[] outcomes = new Object[size];
+        for (int i = 0; i < size; i++) {
             if (remainingNanos <= 0) {
-                waitAndCollect(successMap, failMap, timeoutMap, cancelMap, future, 1L);
+                waitAndCollect(states, outcomes, i, futures[i], 1L);
                 continue;
             }
-            waitAndCollect(successMap, failMap, timeoutMap, cancelMap, future, remainingNanos);
+            waitAndCollect(states, outcomes, i, futures[i], remainingNanos);
             remainingNanos = end - nanoTime();
         }
 
-        TryWaitResult<K, V> result = new TryWaitResult<>(successMap, failMap, timeoutMap, cancelMap,
-                futureKeyMap);
+        TryWaitResult<K, V> result = new TryWaitResult<>(keyArray, futures, states, outcomes, size);
 
-        if (failMap.isEmpty() && timeoutMap.isEmpty() && cancelMap.isEmpty()) {
+        if (result.isAllSuccess()) {
             return result.getSuccess();
         } else {
             throw throwing.apply(result);
         }
     }
 
-    private static <T> void waitAndCollect(Map<Future<? extends T>, T> successMap,
-            Map<Future<? extends T>, Throwable> failMap,
-            Map<Future<? extends T>, TimeoutException> timeoutMap,
-            Map<Future<? extends T>, CancellationException> cancelMap, Future<? extends T> future,
+    static void waitAndCollect(byte[] states, Object[] outcomes, int index, Future<?> future,
             long thisWait) {
         try {
-            T t = getUninterruptibly(future, thisWait, NANOSECONDS);
-            successMap.put(future, t);
+            outcomes[index] = getUninterruptibly(future, thisWait, NANOSECONDS);
+            states[index] = TryWaitResult.SUCCESS;
         } catch (CancellationException e) {
-            cancelMap.put(future, e);
+            outcomes[index] = e;
+            states[index] = TryWaitResult.CANCEL;
         } catch (TimeoutException e) {
-            timeoutMap.put(future, e);
+            outcomes[index] = e;
+            states[index] = TryWaitResult.TIMEOUT;
         } catch (ExecutionException e) {
-            failMap.put(future, e.getCause());
+            outcomes[index] = e.getCause();
+            states[index] = TryWaitResult.FAILED;
         } catch (Throwable e) {
-            failMap.put(future, e);
+            outcomes[index] = e;
+            states[index] = TryWaitResult.FAILED;
         }
     }
 
@@ -305,11 +325,77 @@ public class MoreFutures {
                 return super.cancel(mayInterruptIfRunning);
             }
         };
-        executor.schedule(new ScheduledTaskImpl(executor, task, canceled),
-                initDelay == null ? 0 : initDelay.toMillis(), MILLISECONDS);
+        DelayScheduler scheduler = (runnable, delay) -> executor.schedule(runnable,
+                HashedWheelTimer.toNanosSaturated(delay), NANOSECONDS);
+        scheduler.schedule(new ScheduledTaskImpl(scheduler, task, canceled),
+                initDelay == null ? Duration.ZERO : initDelay);
         return future;
     }
 
+    /**
+     * 执行一个计划任务，按照上一次计划任务返回的等待时间，来运行下一次任务
+     * <p>与{@link #scheduleWithDynamicDelay(ScheduledExecutorService, Duration, Scheduled)}不同，
+     * 本方法使用共享的{@link HashedWheelTimer}计时，到期后将任务投递到executor中执行，不需要为每个计划任务占用一个调度线程，
+     * 每次重新调度和取消的开销都是O(1)，适用于大量计划任务的场景，调度精度为{@link HashedWheelTimer#sharedTimer()}的精度</p>
+     *
+     * @param executor 任务执行器，当任务执行器停止（拒绝任务）时，任务将停止运行，返回的Future以拒绝的异常失败
+     * @param initDelay 首次执行的延迟时间
+     * @param task 执行的任务，在任务中抛出的异常会终止任务的运行，需谨慎处理
+     * @return 执行任务的Future，可以用来取消任务
+     */
+    public static Future<?> scheduleWithDynamicDelay(@Nonnull Executor executor,
+            @Nullable Duration initDelay, @Nonnull Scheduled task) {
+        checkNotNull(executor);
+        checkNotNull(task);
+        AtomicBoolean canceled = new AtomicBoolean(false);
+        TimerDelayScheduler scheduler = new TimerDelayScheduler(HashedWheelTimer.sharedTimer(), executor,
+                canceled);
+        scheduler.schedule(new ScheduledTaskImpl(scheduler, task, canceled),
+                initDelay == null ? Duration.ZERO : initDelay);
+        return scheduler;
+    }
+
+    /**
+     * 执行一个计划任务，按照上一次计划任务返回的等待时间，来运行下一次任务
+     *
+     * @param executor 任务执行器，当任务执行器停止时，所有任务将停止运行
+     * @param initialDelay 首次执行的延迟时间
+     * @param delay 任务延迟提供器，用来设置任务执行之后下一次的执行间隔时间
+     * @param task 执行的任务，任务中抛出的异常会被记录日志，不会终止任务的运行
+     * @return 执行任务的Future，可以用来取消任务
+     * @see #scheduleWithDynamicDelay(Executor, Duration, Scheduled)
+     */
+    public static Future<?> scheduleWithDynamicDelay(@Nonnull Executor executor,
+            @Nonnull Duration initialDelay, @Nonnull Supplier<Duration> delay,
+            @Nonnull ThrowableRunnable<Throwable> task) {
+        checkNotNull(initialDelay);
+        checkNotNull(delay);
+        checkNotNull(task);
+        return scheduleWithDynamicDelay(executor, initialDelay, () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("", e);
+            }
+            return delay.get();
+        });
+    }
+
+    /**
+     * 执行一个计划任务，按照上一次计划任务返回的等待时间，来运行下一次任务
+     *
+     * @param executor 任务执行器，当任务执行器停止时，所有任务将停止运行
+     * @param delay 任务延迟提供器，用来设置任务执行之后下一次的执行间隔时间
+     * @param task 执行的任务，任务中抛出的异常会被记录日志，不会终止任务的运行
+     * @return 执行任务的Future，可以用来取消任务
+     * @see #scheduleWithDynamicDelay(Executor, Duration, Scheduled)
+     */
+    public static Future<?> scheduleWithDynamicDelay(@Nonnull Executor executor,
+            @Nonnull Supplier<Duration> delay, @Nonnull ThrowableRunnable<Throwable> task) {
+        checkNotNull(delay);
+        return scheduleWithDynamicDelay(executor, delay.get(), delay, task);
+    }
+
     /**
      * 执行一个计划任务，按照上一次计划任务返回的等待时间，来运行下一次任务
      *
@@ -356,6 +442,37 @@ public class MoreFutures {
         });
     }
 
+    /**
+     * 按照指定的调度策略执行一个计划任务
+     *
+     * @param executor 任务执行器，当任务执行器停止时，所有任务将停止运行
+     * @param policy 调度策略，支持抖动、异常退避、固定频率等
+     * @param task 执行的任务，任务中抛出的异常会被记录日志，并按照策略决定下一次执行的时间
+     * @return 执行任务的Future，可以用来取消任务
+     * @see SchedulePolicy
+     */
+    public static Future<?> scheduleWithDynamicDelay(@Nonnull ScheduledExecutorService executor,
+            @Nonnull SchedulePolicy policy, @Nonnull ThrowableRunnable<Throwable> task) {
+        checkNotNull(policy);
+        return scheduleWithDynamicDelay(executor, policy.initialDelay(), policy.wrap(task));
+    }
+
+    /**
+     * 按照指定的调度策略执行一个计划任务，使用共享的{@link HashedWheelTimer}计时
+     *
+     * @param executor 任务执行器，当任务执行器停止时，所有任务将停止运行
+     * @param policy 调度策略，支持抖动、异常退避、固定频率等
+     * @param task 执行的任务，任务中抛出的异常会被记录日志，并按照策略决定下一次执行的时间
+     * @return 执行任务的Future，可以用来取消任务
+     * @see SchedulePolicy
+     * @see #scheduleWithDynamicDelay(Executor, Duration, Scheduled)
+     */
+    public static Future<?> scheduleWithDynamicDelay(@Nonnull Executor executor,
+            @Nonnull SchedulePolicy policy, @Nonnull ThrowableRunnable<Throwable> task) {
+        checkNotNull(policy);
+        return scheduleWithDynamicDelay(executor, policy.initialDelay(), policy.wrap(task));
+    }
+
     /**
      * 用于替换 {@link Futures#transform(ListenableFuture, com.google.common.base.Function, Executor)}
      * <p>
@@ -429,15 +546,63 @@ public class MoreFutures {
         Duration run();
     }
 
+    /**
+     * 计划任务下一次执行的调度方式
+     */
+    private interface DelayScheduler {
+
+        void schedule(Runnable task, Duration delay);
+    }
+
+    /**
+     * 同时也是返回给调用方的Future：取消时停止计时，投递失败时以投递的异常结束
+     */
+    private static final class TimerDelayScheduler extends AbstractFuture<Object> implements DelayScheduler {
+
+        private final HashedWheelTimer timer;
+        private final Executor executor;
+        private final AtomicBoolean canceled;
+        private volatile HashedWheelTimer.Timeout current;
+
+        private TimerDelayScheduler(HashedWheelTimer timer, Executor executor, AtomicBoolean canceled) {
+            this.timer = timer;
+            this.executor = executor;
+            this.canceled = canceled;
+        }
+
+        @Override
+        public void schedule(Runnable task, Duration delay) {
+            current = timer.newTimeout(() -> {
+                try {
+                    executor.execute(task);
+                } catch (Throwable e) {
+                    logger.error("fail to submit the scheduled task, the schedule is stopped.", e);
+                    canceled.set(true);
+                    setException(e);
+                }
+            }, delay);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            canceled.set(true);
+            HashedWheelTimer.Timeout timeout = current;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
     private static class ScheduledTaskImpl implements Runnable {
 
-        private final ScheduledExecutorService executorService;
+        private final DelayScheduler scheduler;
         private final Scheduled scheduled;
         private final AtomicBoolean canceled;
 
-        private ScheduledTaskImpl(ScheduledExecutorService executorService, Scheduled scheduled,
+        private ScheduledTaskImpl(DelayScheduler scheduler, Scheduled scheduled,
                 AtomicBoolean canceled) {
-            this.executorService = executorService;
+            this.scheduler = scheduler;
             this.scheduled = scheduled;
             this.canceled = canceled;
         }
@@ -450,7 +615,7 @@ public class MoreFutures {
             try {
                 Duration delay = scheduled.run();
                 if (!canceled.get() && delay != null) {
-                    executorService.schedule(this, delay.toMillis(), MILLISECONDS);
+                    scheduler.schedule(this, delay);
                 }
             } catch (Throwable e) {
                 logger.error("", e);
@@ -0,0 +1,234 @@
+package com.github.phantomthief.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.System.nanoTime;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import com.github.phantomthief.concurrent.MoreFutures.Scheduled;
+import com.github.phantomthief.util.ThrowableRunnable;
+
+/**
+ * 计划任务的调度策略，配合 {@link MoreFutures#scheduleWithDynamicDelay(java.util.concurrent.Executor, SchedulePolicy, ThrowableRunnable)} 使用
+ * <p>在固定/动态间隔的基础上，支持：</p>
+ * <ul>
+ *     <li>随机抖动（jitter），避免大量同时启动的计划任务步调一致，对下游造成周期性的突发压力；</li>
+ *     <li>执行异常时指数退避，而不是按照原间隔继续重试；</li>
+ *     <li>固定频率模式下的超时保护，当一次执行超过了间隔时间，跳过错过的周期，而不是连续补跑；</li>
+ *     <li>纳秒级的间隔精度（实际精度取决于所使用的调度器）。</li>
+ * </ul>
+ * <pre>{@code
+ * SchedulePolicy policy = SchedulePolicy.newBuilder()
+ *         .delay(ofSeconds(10))
+ *         .jitter(0.2)
+ *         .backoff(ofSeconds(1), ofMinutes(5))
+ *         .build();
+ * scheduleWithDynamicDelay(executor, policy, this::pollConfig);
+ * }</pre>
+ */
+public final class SchedulePolicy {
+
+    private static final Logger logger = getLogger(SchedulePolicy.class);
+
+    private final Duration initialDelay;
+    private final Supplier<Duration> delay;
+    private final double jitter;
+    private final long backoffInitialNanos;
+    private final long backoffMaxNanos;
+    private final boolean fixedRate;
+
+    private SchedulePolicy(Builder builder) {
+        this.initialDelay = builder.initialDelay;
+        this.delay = builder.delay;
+        this.jitter = builder.jitter;
+        this.backoffInitialNanos = builder.backoffInitial == null ? 0 : builder.backoffInitial.toNanos();
+        this.backoffMaxNanos = builder.backoffMax == null ? 0 : builder.backoffMax.toNanos();
+        this.fixedRate = builder.fixedRate;
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 加上抖动之后的首次执行延迟
+     */
+    @Nonnull
+    Duration initialDelay() {
+        Duration init = initialDelay != null ? initialDelay : delay.get();
+        if (init == null) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(applyJitter(init.toNanos()));
+    }
+
+    /**
+     * 将任务按照当前策略包装为 {@link Scheduled}，返回的对象是有状态的，每个计划任务需要单独包装
+     */
+    @Nonnull
+    Scheduled wrap(@Nonnull ThrowableRunnable<Throwable> task) {
+        checkNotNull(task);
+        return new PolicyScheduled(task);
+    }
+
+    private long applyJitter(long nanos) {
+        if (jitter <= 0 || nanos <= 0) {
+            return nanos;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return (long) (nanos * factor);
+    }
+
+    private long backoffNanos(int failures) {
+        long result = backoffInitialNanos;
+        for (int i = 1; i < failures && result < backoffMaxNanos; i++) {
+            result <<= 1;
+        }
+        return Math.min(result, backoffMaxNanos);
+    }
+
+    private final class PolicyScheduled implements Scheduled {
+
+        private final ThrowableRunnable<Throwable> task;
+        private int consecutiveFailures;
+
+        private PolicyScheduled(ThrowableRunnable<Throwable> task) {
+            this.task = task;
+        }
+
+        @Nullable
+        @Override
+        public Duration run() {
+            long start = nanoTime();
+            boolean failed = false;
+            try {
+                task.run();
+                consecutiveFailures = 0;
+            } catch (Throwable e) {
+                failed = true;
+                consecutiveFailures++;
+                logger.error("scheduled task failed, consecutive failures:{}", consecutiveFailures, e);
+            }
+            Duration next = delay.get();
+            if (next == null) {
+                return null;
+            }
+            long nextNanos = next.toNanos();
+            if (failed && backoffInitialNanos > 0) {
+                nextNanos = Math.max(nextNanos, backoffNanos(consecutiveFailures));
+            } else if (fixedRate && nextNanos > 0) {
+                long elapsed = nanoTime() - start;
+                // skip the missed periods instead of running them back-to-back
+                nextNanos = nextNanos - (elapsed % nextNanos);
+            }
+            return Duration.ofNanos(Math.max(0, applyJitter(nextNanos)));
+        }
+    }
+
+    /**
+     * {@link SchedulePolicy}构造器
+     */
+    public static final class Builder {
+
+        private Duration initialDelay;
+        private Supplier<Duration> delay;
+        private double jitter;
+        private Duration backoffInitial;
+        private Duration backoffMax;
+        private boolean fixedRate;
+
+        private Builder() {
+        }
+
+        /**
+         * 首次执行的延迟时间，不设置时使用 {@link #delay} 的值
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder initialDelay(@Nonnull Duration value) {
+            checkNotNull(value);
+            checkArgument(!value.isNegative(), "initial delay cannot be negative.");
+            this.initialDelay = value;
+            return this;
+        }
+
+        /**
+         * 固定的执行间隔
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder delay(@Nonnull Duration value) {
+            checkNotNull(value);
+            checkArgument(!value.isNegative(), "delay cannot be negative.");
+            return delay(() -> value);
+        }
+
+        /**
+         * 动态的执行间隔，每次执行完成后获取，返回 {@code null} 表示停止调度
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder delay(@Nonnull Supplier<Duration> value) {
+            this.delay = checkNotNull(value);
+            return this;
+        }
+
+        /**
+         * 随机抖动比例，实际间隔在 [delay * (1 - ratio), delay * (1 + ratio)) 范围内均匀分布
+         *
+         * @param ratio 抖动比例，取值范围 [0, 1)
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder jitter(double ratio) {
+            checkArgument(ratio >= 0 && ratio < 1, "invalid jitter ratio:%s", ratio);
+            this.jitter = ratio;
+            return this;
+        }
+
+        /**
+         * 执行异常时的指数退避，连续失败时间隔从initial开始每次翻倍，最大不超过max，成功后恢复正常间隔
+         * <p>退避的间隔不会小于正常的执行间隔</p>
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder backoff(@Nonnull Duration initial, @Nonnull Duration max) {
+            checkNotNull(initial);
+            checkNotNull(max);
+            checkArgument(initial.toNanos() > 0, "invalid initial backoff:%s", initial);
+            checkArgument(max.compareTo(initial) >= 0, "max backoff must not less than initial.");
+            this.backoffInitial = initial;
+            this.backoffMax = max;
+            return this;
+        }
+
+        /**
+         * 使用固定频率模式，间隔从上一次执行开始时计算；当执行耗时超过间隔时，跳过错过的周期，不会连续补跑
+         * <p>默认为固定延迟模式，间隔从上一次执行结束时计算</p>
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder fixedRate() {
+            this.fixedRate = true;
+            return this;
+        }
+
+        @Nonnull
+        public SchedulePolicy build() {
+            checkNotNull(delay, "delay must be set.");
+            return new SchedulePolicy(this);
+        }
+    }
+}
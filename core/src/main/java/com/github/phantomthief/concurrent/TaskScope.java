@@ -0,0 +1,263 @@
+package com.github.phantomthief.concurrent;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import com.github.phantomthief.concurrent.HashedWheelTimer.Timeout;
+import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * 结构化并发的任务作用域，参考了JDK的StructuredTaskScope，但是可以在JDK8上使用
+ * <p>在一个作用域内fork的所有子任务共享同一个deadline，并按照策略在失败（或成功）时取消其它的兄弟任务，
+ * 避免已经没有意义的子任务继续占用执行器。</p>
+ * <pre>{@code
+ * try (TaskScope<Integer, User> scope = TaskScope.shutdownOnFailure(executor, ofSeconds(1))) {
+ *   for (int id : ids) {
+ *     scope.fork(id, () -> retrieve(id));
+ *   }
+ *   Map<Integer, User> users = scope.join(); // throws TryWaitUncheckedException if any failed
+ * }
+ * }</pre>
+ * <p>未指定执行器时，在JDK21+上使用虚拟线程执行子任务，否则使用一个共享的缓存线程池。</p>
+ *
+ * @param <K> 子任务的Key，用于在结果中标识子任务
+ * @param <V> 子任务的返回值类型
+ */
+public final class TaskScope<K, V> implements AutoCloseable {
+
+    private static final Logger logger = getLogger(TaskScope.class);
+
+    private static final CloseableSupplier<Executor> DEFAULT_EXECUTOR = lazy(TaskScope::createDefaultExecutor);
+
+    private final Executor executor;
+    private final boolean shutdownOnSuccess;
+    private final long deadlineNanos;
+    private final Queue<Forked<K, V>> forked = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+    private final Timeout deadlineTimeout;
+
+    private volatile boolean deadlineExceeded;
+
+    private TaskScope(Executor executor, @Nullable Duration deadline, boolean shutdownOnSuccess) {
+        this.executor = checkNotNull(executor);
+        this.shutdownOnSuccess = shutdownOnSuccess;
+        if (deadline != null) {
+            this.deadlineNanos = nanoTime() + deadline.toNanos();
+            this.deadlineTimeout = HashedWheelTimer.sharedTimer().newTimeout(() -> {
+                deadlineExceeded = true;
+                shutdown();
+            }, deadline);
+        } else {
+            this.deadlineNanos = Long.MAX_VALUE;
+            this.deadlineTimeout = null;
+        }
+    }
+
+    /**
+     * 创建一个任意子任务失败时就取消其它子任务的作用域
+     *
+     * @param executor 子任务的执行器
+     * @param deadline 所有子任务共享的deadline，从创建作用域时开始计算，{@code null}表示不限制
+     */
+    @Nonnull
+    public static <K, V> TaskScope<K, V> shutdownOnFailure(@Nonnull Executor executor,
+            @Nullable Duration deadline) {
+        return new TaskScope<>(executor, deadline, false);
+    }
+
+    /**
+     * 创建一个任意子任务失败时就取消其它子任务的作用域，使用默认的执行器
+     *
+     * @see #shutdownOnFailure(Executor, Duration)
+     */
+    @Nonnull
+    public static <K, V> TaskScope<K, V> shutdownOnFailure(@Nullable Duration deadline) {
+        return shutdownOnFailure(DEFAULT_EXECUTOR.get(), deadline);
+    }
+
+    /**
+     * 创建一个任意子任务成功时就取消其它子任务的作用域，适用于向多个副本发起请求、取最快返回结果的场景
+     *
+     * @param executor 子任务的执行器
+     * @param deadline 所有子任务共享的deadline，从创建作用域时开始计算，{@code null}表示不限制
+     */
+    @Nonnull
+    public static <K, V> TaskScope<K, V> shutdownOnSuccess(@Nonnull Executor executor,
+            @Nullable Duration deadline) {
+        return new TaskScope<>(executor, deadline, true);
+    }
+
+    /**
+     * 创建一个任意子任务成功时就取消其它子任务的作用域，使用默认的执行器
+     *
+     * @see #shutdownOnSuccess(Executor, Duration)
+     */
+    @Nonnull
+    public static <K, V> TaskScope<K, V> shutdownOnSuccess(@Nullable Duration deadline) {
+        return shutdownOnSuccess(DEFAULT_EXECUTOR.get(), deadline);
+    }
+
+    /**
+     * 在作用域内启动一个子任务，如果作用域已经关闭，返回一个已取消的Future，任务不会执行
+     *
+     * @param key 子任务的Key
+     * @param task 子任务
+     * @return 子任务的Future
+     */
+    @Nonnull
+    public ListenableFuture<V> fork(@Nonnull K key, @Nonnull Callable<? extends V> task) {
+        checkNotNull(key);
+        checkNotNull(task);
+        ListenableFutureTask<V> future = ListenableFutureTask.create(task::call);
+        // add before checking shutdown, so a concurrent shutdown would always see it.
+        forked.add(new Forked<>(key, future));
+        if (shutdown.get()) {
+            future.cancel(false);
+            return future;
+        }
+        future.addListener(() -> onComplete(future), directExecutor());
+        try {
+            executor.execute(future);
+        } catch (Throwable e) {
+            future.cancel(false);
+            throw e;
+        }
+        return future;
+    }
+
+    private void onComplete(Future<V> future) {
+        if (future.isCancelled()) {
+            return;
+        }
+        boolean success;
+        try {
+            Futures.getDone(future);
+            success = true;
+        } catch (ExecutionException e) {
+            success = false;
+        }
+        if (success == shutdownOnSuccess) {
+            shutdown();
+        }
+    }
+
+    /**
+     * 关闭作用域，取消（并中断）所有未完成的子任务，之后fork的子任务不会再执行
+     */
+    public void shutdown() {
+        if (shutdown.compareAndSet(false, true)) {
+            if (deadlineTimeout != null) {
+                deadlineTimeout.cancel();
+            }
+            for (Forked<K, V> f : forked) {
+                f.future.cancel(true);
+            }
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown.get();
+    }
+
+    /**
+     * 等待所有子任务完成（或被取消），最长等待到deadline
+     * <p>因为deadline而被取消的子任务，在结果中视为超时</p>
+     *
+     * @return 成功的子任务结果
+     * @throws TryWaitUncheckedException shutdownOnFailure模式下，有任意子任务没有成功时抛出；
+     * shutdownOnSuccess模式下，没有任何子任务成功时抛出
+     */
+    @Nonnull
+    public Map<K, V> join() throws TryWaitUncheckedException {
+        List<Forked<K, V>> list = new ArrayList<>(forked);
+        int size = list.size();
+        Object[] keys = new Object[size];
+        Future<?>[] futures = new Future<?>[size];
+        byte[] states = new byte[size];
+        Object[] outcomes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Forked<K, V> f = list.get(i);
+            keys[i] = f.key;
+            futures[i] = f.future;
+            long remaining = deadlineNanos == Long.MAX_VALUE ? Long.MAX_VALUE : deadlineNanos - nanoTime();
+            MoreFutures.waitAndCollect(states, outcomes, i, f.future, Math.max(remaining, 1L));
+            if (states[i] == TryWaitResult.CANCEL && deadlineExceeded) {
+                states[i] = TryWaitResult.TIMEOUT;
+                outcomes[i] = new TimeoutException("deadline exceeded.");
+            }
+        }
+        TryWaitResult<K, V> result = new TryWaitResult<>(keys, futures, states, outcomes, size);
+        if (shutdownOnSuccess ? result.hasSuccess() : result.isAllSuccess()) {
+            return result.getSuccess();
+        }
+        throw new TryWaitUncheckedException(result);
+    }
+
+    /**
+     * 关闭作用域并取消所有未完成的子任务
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            // jdk21+: one virtual thread per task
+            ExecutorService executor = (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(java.util.concurrent.Executors.class, "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+            logger.info("using virtual threads as TaskScope's default executor.");
+            return executor;
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            logger.debug("virtual threads are not available, fallback to a cached thread pool.");
+        } catch (Throwable e) {
+            logger.warn("failed to create virtual thread executor, fallback to a cached thread pool.", e);
+        }
+        return newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("task-scope-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    private static final class Forked<K, V> {
+
+        private final K key;
+        private final ListenableFutureTask<V> future;
+
+        private Forked(K key, ListenableFutureTask<V> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+}
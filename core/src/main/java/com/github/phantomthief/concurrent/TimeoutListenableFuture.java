@@ -1,11 +1,16 @@
 package com.github.phantomthief.concurrent;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -14,9 +19,12 @@ import javax.annotation.Nonnull;
 
 import org.slf4j.Logger;
 
+import com.github.phantomthief.concurrent.HashedWheelTimer.Timeout;
 import com.github.phantomthief.util.ThrowableConsumer;
 import com.github.phantomthief.util.ThrowableRunnable;
+import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ForwardingListenableFuture;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 /**
@@ -28,7 +36,7 @@ public class TimeoutListenableFuture<V> extends ForwardingListenableFuture<V> {
     private static final Logger logger = getLogger(TimeoutListenableFuture.class);
 
     private final ListenableFuture<V> delegate;
-    private final List<ThrowableConsumer<TimeoutException, Exception>> timeoutListeners = new ArrayList<>();
+    private final List<ThrowableConsumer<TimeoutException, Exception>> timeoutListeners = new CopyOnWriteArrayList<>();
 
     /**
      * better use {@link #timeoutListenableFuture(ListenableFuture)}
@@ -46,6 +54,28 @@ public class TimeoutListenableFuture<V> extends ForwardingListenableFuture<V> {
         }
     }
 
+    /**
+     * 创建一个自带计时的{@link TimeoutListenableFuture}，不需要调用{@link #get(long, TimeUnit)}也会触发超时
+     * <p>创建时在{@link HashedWheelTimer#sharedTimer()}上注册一个定时任务，如果在deadline之前delegate没有完成，
+     * 返回的Future将以{@link TimeoutException}异常完成，并执行所有的超时监听器（每个监听器只会执行一次）。</p>
+     * <p>注意：超时监听器会在定时器线程中执行，必须简短且不阻塞。</p>
+     *
+     * @param delegate 原始的Future
+     * @param timeout 超时时间，从创建时开始计算
+     * @param cancelDelegateOnTimeout 超时后是否取消delegate的执行
+     * @return 自带计时的Future，取消它也会取消delegate
+     */
+    public static <V> TimeoutListenableFuture<V> timeoutListenableFuture(ListenableFuture<V> delegate,
+            Duration timeout, boolean cancelDelegateOnTimeout) {
+        checkNotNull(delegate);
+        checkNotNull(timeout);
+        checkArgument(!timeout.isNegative(), "timeout cannot be negative.");
+        TimedFuture<V> timed = new TimedFuture<>(delegate, cancelDelegateOnTimeout);
+        SelfTimingListenableFuture<V> result = new SelfTimingListenableFuture<>(timed);
+        timed.start(result, timeout);
+        return result;
+    }
+
     @Override
     protected ListenableFuture<V> delegate() {
         return delegate;
@@ -69,18 +99,135 @@ public class TimeoutListenableFuture<V> extends ForwardingListenableFuture<V> {
         try {
             return delegate().get(timeout, unit);
         } catch (TimeoutException e) {
-            for (ThrowableConsumer<TimeoutException, Exception> listener : timeoutListeners) {
-                try {
-                    listener.accept(e);
-                } catch (Exception e1) {
-                    logger.error("", e1);
-                }
-            }
+            notifyTimeout(e);
             throw e;
         }
     }
 
+    void notifyTimeout(TimeoutException e) {
+        for (ThrowableConsumer<TimeoutException, Exception> listener : timeoutListeners) {
+            invokeTimeoutListener(listener, e);
+        }
+    }
+
+    private static void invokeTimeoutListener(ThrowableConsumer<TimeoutException, Exception> listener,
+            TimeoutException e) {
+        try {
+            listener.accept(e);
+        } catch (Exception e1) {
+            logger.error("", e1);
+        }
+    }
+
     public List<ThrowableConsumer<TimeoutException, Exception>> getTimeoutListeners() {
         return Collections.unmodifiableList(timeoutListeners);
     }
+
+    /**
+     * 超时后才添加的监听器会立即执行，与{@link ListenableFuture#addListener}在已完成的Future上的行为一致
+     */
+    private static final class SelfTimingListenableFuture<V> extends TimeoutListenableFuture<V> {
+
+        /**
+         * 由this保护，超时后记录触发的异常
+         */
+        private TimeoutException notified;
+
+        private SelfTimingListenableFuture(ListenableFuture<V> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public TimeoutListenableFuture<V>
+                addTimeoutListener(@Nonnull ThrowableConsumer<TimeoutException, Exception> listener) {
+            TimeoutException e;
+            synchronized (this) {
+                super.addTimeoutListener(listener);
+                e = notified;
+            }
+            if (e != null) {
+                invokeTimeoutListener(listener, e);
+            }
+            return this;
+        }
+
+        /**
+         * 只有定时器到期才触发超时监听器，调用方自己等待超时不影响Future的状态
+         */
+        @Override
+        public V get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate().get(timeout, unit);
+        }
+
+        @Override
+        void notifyTimeout(TimeoutException e) {
+            List<ThrowableConsumer<TimeoutException, Exception>> listeners;
+            synchronized (this) {
+                if (notified != null) {
+                    return;
+                }
+                notified = e;
+                listeners = new ArrayList<>(getTimeoutListeners());
+            }
+            for (ThrowableConsumer<TimeoutException, Exception> listener : listeners) {
+                invokeTimeoutListener(listener, e);
+            }
+        }
+    }
+
+    /**
+     * 镜像delegate的结果，到达deadline时以{@link TimeoutException}完成
+     */
+    private static final class TimedFuture<V> extends AbstractFuture<V> {
+
+        private final ListenableFuture<V> delegate;
+        private final boolean cancelDelegateOnTimeout;
+        private volatile Timeout timeout;
+
+        private TimedFuture(ListenableFuture<V> delegate, boolean cancelDelegateOnTimeout) {
+            this.delegate = delegate;
+            this.cancelDelegateOnTimeout = cancelDelegateOnTimeout;
+        }
+
+        void start(SelfTimingListenableFuture<V> owner, Duration duration) {
+            timeout = HashedWheelTimer.sharedTimer().newTimeout(() -> {
+                TimeoutException e = new TimeoutException("timeout after " + duration);
+                if (setException(e)) {
+                    if (cancelDelegateOnTimeout) {
+                        delegate.cancel(false);
+                    }
+                    owner.notifyTimeout(e);
+                }
+            }, duration);
+            delegate.addListener(this::completeFromDelegate, directExecutor());
+        }
+
+        private void completeFromDelegate() {
+            if (delegate.isCancelled()) {
+                cancel(false);
+                return;
+            }
+            try {
+                set(Futures.getDone(delegate));
+            } catch (ExecutionException e) {
+                setException(e.getCause());
+            } catch (CancellationException e) {
+                cancel(false);
+            } catch (Throwable e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        protected void afterDone() {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+            if (isCancelled()) {
+                delegate.cancel(wasInterrupted());
+            }
+        }
+    }
 }
@@ -2,58 +2,89 @@ package com.github.phantomthief.concurrent;
 
 import static com.github.phantomthief.util.MoreSuppliers.lazy;
 import static com.google.common.base.MoreObjects.toStringHelper;
-import static java.util.stream.Collectors.toMap;
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.StringJoiner;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
 /**
+ * 批量等待的结果
+ * <p>为了降低大批量等待时的内存开销，结果以输入顺序为下标的平行数组存储，
+ * 各个按Key索引的{@link Map}只有在被访问时才会创建。</p>
+ *
  * @author w.vela
  * Created on 2018-06-25.
  */
 class TryWaitResult<K, V> {
 
-    private final Map<Future<? extends V>, V> success;
-    private final Map<Future<? extends V>, Throwable> failed;
-    private final Map<Future<? extends V>, TimeoutException> timeout;
-    private final Map<Future<? extends V>, CancellationException> cancel;
-    private final Map<Future<? extends V>, K> futureMap;
+    static final byte SUCCESS = 0;
+    static final byte FAILED = 1;
+    static final byte TIMEOUT = 2;
+    static final byte CANCEL = 3;
+
+    private final Object[] keys;
+    private final Future<?>[] futures;
+    private final byte[] states;
+    /**
+     * 成功时为结果值，否则为对应的异常
+     */
+    private final Object[] outcomes;
+    private final int size;
+    private final int[] counts = new int[4];
 
     private final Supplier<Map<K, V>> successMap;
     private final Supplier<Map<K, Throwable>> failedMap;
     private final Supplier<Map<K, TimeoutException>> timeoutMap;
     private final Supplier<Map<K, CancellationException>> cancelMap;
 
-    TryWaitResult(Map<Future<? extends V>, V> success, Map<Future<? extends V>, Throwable> failed,
-            Map<Future<? extends V>, TimeoutException> timeout,
-            Map<Future<? extends V>, CancellationException> cancel,
-            Map<Future<? extends V>, K> futureMap) {
-        this.success = success;
-        this.failed = failed;
-        this.timeout = timeout;
-        this.cancel = cancel;
-        this.futureMap = futureMap;
-        successMap = lazy(() -> transfer(this.success, this.futureMap));
-        failedMap = lazy(() -> transfer(this.failed, this.futureMap));
-        timeoutMap = lazy(() -> transfer(this.timeout, this.futureMap));
-        cancelMap = lazy(() -> transfer(this.cancel, this.futureMap));
+    /**
+     * @param keys 输入的Key，下标与其它数组一一对应
+     * @param futures 每个Key对应的{@link Future}
+     * @param states 每个{@link Future}的完成状态，取值为{@link #SUCCESS}/{@link #FAILED}/{@link #TIMEOUT}/{@link #CANCEL}
+     * @param outcomes 成功时为结果值，否则为对应的异常
+     * @param size 有效元素个数
+     */
+    TryWaitResult(Object[] keys, Future<?>[] futures, byte[] states, Object[] outcomes, int size) {
+        this.keys = keys;
+        this.futures = futures;
+        this.states = states;
+        this.outcomes = outcomes;
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            counts[states[i]]++;
+        }
+        successMap = lazy(() -> toMap(SUCCESS));
+        failedMap = lazy(() -> toMap(FAILED));
+        timeoutMap = lazy(() -> toMap(TIMEOUT));
+        cancelMap = lazy(() -> toMap(CANCEL));
     }
 
-    private <T2> Map<K, T2> transfer(Map<Future<? extends V>, T2> sourceMap,
-            Map<Future<? extends V>, K> transferMap) {
-        Map<K, T2> map = new HashMap<>();
+    boolean isAllSuccess() {
+        return counts[SUCCESS] == size;
+    }
+
+    boolean hasSuccess() {
+        return counts[SUCCESS] > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<K, T> toMap(byte state) {
+        Map<K, T> map = newHashMapWithExpectedSize(counts[state]);
+        if (counts[state] == 0) {
+            return map;
+        }
         // not using collect, for value may be null.
-        sourceMap.forEach((k, v) -> map.put(transferMap.get(k), v));
+        for (int i = 0; i < size; i++) {
+            if (states[i] == state) {
+                map.put((K) keys[i], (T) outcomes[i]);
+            }
+        }
         return map;
     }
 
@@ -77,33 +108,42 @@ class TryWaitResult<K, V> {
         return cancelMap.get();
     }
 
+    @SuppressWarnings("unchecked")
     @Nonnull
     public Map<K, Boolean> cancelAllTimeout(boolean mayInterruptIfRunning) {
-        return timeout.entrySet().stream()
-                .collect(toMap(entry -> futureMap.get(entry.getKey()),
-                        it -> it.getKey().cancel(mayInterruptIfRunning)));
+        Map<K, Boolean> result = newHashMapWithExpectedSize(counts[TIMEOUT]);
+        for (int i = 0; i < size; i++) {
+            if (states[i] == TIMEOUT) {
+                result.put((K) keys[i], futures[i].cancel(mayInterruptIfRunning));
+            }
+        }
+        return result;
     }
 
     @Override
     public String toString() {
         return toStringHelper(this)
-                .add("success", success.size())
-                .add("failed", failed.size())
-                .add("timeout", timeout.size())
-                .add("cancel", cancel.size())
+                .add("success", counts[SUCCESS])
+                .add("failed", counts[FAILED])
+                .add("timeout", counts[TIMEOUT])
+                .add("cancel", counts[CANCEL])
                 .toString();
     }
 
     public String getCombinedExceptionMessage() {
-        return Stream.of(getFailed(), getTimeout(), getCancel())
-                .map(map -> map.entrySet().stream())
-                .flatMap(Function.identity())
-                .map(this::exceptionEntryToString)
-                .collect(Collectors.joining("\n"));
-    }
-
-    private String exceptionEntryToString(Entry<?, ? extends Throwable> entry) {
-        return String.format("key:%s, exception:%s, message:%s", entry.getKey(),
-                entry.getValue().getClass(), entry.getValue().getMessage());
+        StringJoiner joiner = new StringJoiner("\n");
+        for (byte state = FAILED; state <= CANCEL; state++) {
+            if (counts[state] == 0) {
+                continue;
+            }
+            for (int i = 0; i < size; i++) {
+                if (states[i] == state) {
+                    Throwable e = (Throwable) outcomes[i];
+                    joiner.add(String.format("key:%s, exception:%s, message:%s", keys[i],
+                            e.getClass(), e.getMessage()));
+                }
+            }
+        }
+        return joiner.toString();
     }
 }
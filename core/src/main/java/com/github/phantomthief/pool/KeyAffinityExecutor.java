@@ -133,6 +133,8 @@ public interface KeyAffinityExecutor<K> extends KeyAffinity<K, ListeningExecutor
 
     /**
      * 提交执行一个任务
+     * <p>提交时的 {@link com.github.phantomthief.util.Deadline} 会带到执行线程，开始执行前已经到期的任务不再执行，
+     * 返回的 {@link ListenableFuture} 以 {@link com.google.common.util.concurrent.UncheckedTimeoutException} 失败</p>
      *
      * @param key 任务对应的Key，此对象务必实现hashCode、equals，以确保可以起到标识作用
      * @param task 任务执行对象
@@ -159,6 +161,7 @@ public interface KeyAffinityExecutor<K> extends KeyAffinity<K, ListeningExecutor
 
     /**
      * 提交执行一个任务
+     * <p>提交时的 {@link com.github.phantomthief.util.Deadline} 会带到执行线程，开始执行前已经到期的任务直接跳过</p>
      *
      * @param key 任务对应的Key，此对象务必实现hashCode、equals，以确保可以起到标识作用
      * @param task 任务执行对象
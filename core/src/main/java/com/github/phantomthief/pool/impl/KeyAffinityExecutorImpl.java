@@ -1,7 +1,7 @@
 package com.github.phantomthief.pool.impl;
 
 import static com.github.phantomthief.pool.impl.KeyAffinityExecutorBuilder.ALL_EXECUTORS;
-import static com.google.common.base.Preconditions.checkNotNull;
+import static com.github.phantomthief.util.Deadline.propagate;
 import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.util.concurrent.Futures.addCallback;
 import static com.google.common.util.concurrent.Futures.immediateCancelledFuture;
@@ -75,7 +75,7 @@ class KeyAffinityExecutorImpl<K> extends LazyKeyAffinity<K, ListeningExecutorSer
 
     @Override
     public <T> ListenableFuture<T> submit(K key, @Nonnull Callable<T> task) {
-        checkNotNull(task);
+        task = propagate(task);
 
         if (skipDuplicate) {
             task = wrapSkipCheck(key, task);
@@ -136,12 +136,12 @@ class KeyAffinityExecutorImpl<K> extends LazyKeyAffinity<K, ListeningExecutorSer
 
     @Override
     public void executeEx(K key, @Nonnull ThrowableRunnable<Exception> task) {
-        checkNotNull(task);
+        ThrowableRunnable<Exception> deadlineTask = propagate(task);
 
         ThrowableRunnable<Exception> finalTask;
         if (skipDuplicate) {
             Callable<Void> wrapCallable = wrapSkipCheck(key, () -> {
-                task.run();
+                deadlineTask.run();
                 return null;
             });
             if (wrapCallable == null) {
@@ -150,7 +150,7 @@ class KeyAffinityExecutorImpl<K> extends LazyKeyAffinity<K, ListeningExecutorSer
                 finalTask = wrapCallable::call;
             }
         } else {
-            finalTask = task;
+            finalTask = deadlineTask;
         }
 
         ListeningExecutorService service = select(key);
@@ -0,0 +1,173 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 自适应的并发限流器，根据下游的延迟动态调整允许的最大并发数（AIMD）
+ * <ul>
+ *     <li>请求耗时不超过 {@link Builder#latencyThreshold} 且当前并发已经用到限制的一半以上时，限制加1；</li>
+ *     <li>请求耗时超过阈值，或者被下游丢弃（{@link #onDropped()}）时，限制乘以 {@link Builder#backoffRatio}。</li>
+ * </ul>
+ * <p>获得准许的请求结束后，必须且只能调用一次 {@link #onSuccess(long)} 或 {@link #onDropped()}。</p>
+ */
+@ThreadSafe
+public class AdaptiveConcurrencyLimiter implements Limiter {
+
+    private final LongAdder skip = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private volatile double limit;
+
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.latencyThresholdNanos = builder.latencyThreshold.toNanos();
+        this.backoffRatio = builder.backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                skip.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void onSuccess(long elapsedNanos) {
+        int current = inFlight.getAndDecrement();
+        if (elapsedNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (current * 2 >= limit) {
+            increase();
+        }
+    }
+
+    @Override
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(maxLimit, limit + 1);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    /**
+     * @return 当前允许的最大并发数
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return 当前正在处理的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getSkipCountAndClear() {
+        return skip.sumThenReset();
+    }
+
+    /**
+     * {@link AdaptiveConcurrencyLimiter}构造器
+     */
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private Duration latencyThreshold;
+        private double backoffRatio = 0.9;
+
+        private Builder() {
+        }
+
+        /**
+         * 初始的并发限制，默认为20
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder initialLimit(int initialLimit) {
+            checkArgument(initialLimit > 0, "invalid initial limit:%s", initialLimit);
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * 并发限制的范围，默认为[1, 1000]
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder limitRange(int minLimit, int maxLimit) {
+            checkArgument(minLimit > 0, "invalid min limit:%s", minLimit);
+            checkArgument(maxLimit >= minLimit, "max limit must not less than min limit.");
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * 请求耗时超过该阈值时，视为下游过载，降低并发限制
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder latencyThreshold(@Nonnull Duration latencyThreshold) {
+            checkNotNull(latencyThreshold);
+            checkArgument(latencyThreshold.toNanos() > 0, "invalid latency threshold:%s", latencyThreshold);
+            this.latencyThreshold = latencyThreshold;
+            return this;
+        }
+
+        /**
+         * 降低并发限制时的乘数，取值范围 (0, 1)，默认为0.9
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder backoffRatio(double backoffRatio) {
+            checkArgument(backoffRatio > 0 && backoffRatio < 1, "invalid backoff ratio:%s", backoffRatio);
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        @Nonnull
+        public AdaptiveConcurrencyLimiter build() {
+            checkNotNull(latencyThreshold, "latency threshold must be set.");
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
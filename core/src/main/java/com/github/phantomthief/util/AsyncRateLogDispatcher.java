@@ -0,0 +1,264 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.google.common.collect.Maps.immutableEntry;
+import static java.util.Comparator.comparingLong;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.slf4j.spi.LocationAwareLogger.DEBUG_INT;
+import static org.slf4j.spi.LocationAwareLogger.INFO_INT;
+import static org.slf4j.spi.LocationAwareLogger.TRACE_INT;
+import static org.slf4j.spi.LocationAwareLogger.WARN_INT;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.Marker;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.spi.LocationAwareLogger;
+
+import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
+
+/**
+ * 异步模式的 {@link RateLogger} 共享的日志分发器
+ * <p>获得准许的日志在调用线程上格式化成字符串，放入有界队列后立即返回，由一个后台线程统一输出，
+ * 请求线程不会阻塞在appender的IO上；队列满时直接丢弃，并在汇总日志中报告丢弃的数量。</p>
+ * <p>被限流的日志在丢弃时按Logger、按消息计数，后台线程每个周期输出一条汇总，列出被限流次数最多的若干条消息。</p>
+ * <p>后台线程上无法知道调用方的代码位置，所以输出的日志不带位置信息，而不是给出一个错误的位置。</p>
+ */
+@ThreadSafe
+final class AsyncRateLogDispatcher implements AutoCloseable {
+
+    private static final Logger logger = getLogger(AsyncRateLogDispatcher.class);
+
+    /**
+     * 不会出现在任何调用栈上的类名，{@link LocationAwareLogger} 找不到它时不输出代码位置
+     */
+    private static final String NO_LOCATION_FQCN = AsyncRateLogDispatcher.class.getName() + ".NoLocation";
+
+    /**
+     * 每个Logger最多单独统计的消息种类，超过的部分合并到 {@link #OTHER_MESSAGES}
+     */
+    private static final int MAX_MESSAGES_PER_LOGGER = 1024;
+    private static final String OTHER_MESSAGES = "(other messages)";
+
+    private static final Event CLOSE = new Event(null, null, 0, null, null);
+
+    private static final CloseableSupplier<AsyncRateLogDispatcher> SHARED = lazy(
+            () -> new AsyncRateLogDispatcher(8192, Duration.ofSeconds(10), 5));
+
+    private final long summaryPeriodNanos;
+    private final int topN;
+
+    private final BlockingQueue<Event> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final ConcurrentMap<Logger, ConcurrentMap<String, LongAdder>> suppressed = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    AsyncRateLogDispatcher(int capacity, Duration summaryPeriod, int topN) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.summaryPeriodNanos = summaryPeriod.toNanos();
+        this.topN = topN;
+        this.thread = new Thread(this::run, "rate-logger-async");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    static AsyncRateLogDispatcher shared() {
+        return SHARED.get();
+    }
+
+    /**
+     * 在调用线程上格式化日志后放入队列，参数在返回后不会再被访问；关闭后直接在调用线程上输出
+     *
+     * @return 是否接受了这条日志，队列满时返回false，日志被丢弃
+     */
+    boolean offer(Logger target, @Nullable Marker marker, int level, String format, @Nullable Object[] args,
+            @Nullable Throwable t) {
+        FormattingTuple formatted = MessageFormatter.arrayFormat(format, args);
+        Event event = new Event(target, marker, level, formatted.getMessage(),
+                t != null ? t : formatted.getThrowable());
+        if (closed) {
+            emit(event);
+            return true;
+        }
+        if (!queue.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        // 与close()并发时，后台线程和close()都可能已经退出了最后一次输出，取回来自己输出
+        if (closed && queue.remove(event)) {
+            emit(event);
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次被限流的日志
+     *
+     * @param message 日志的格式串，相同的格式串合并计数
+     */
+    void suppressed(Logger target, @Nullable String message) {
+        ConcurrentMap<String, LongAdder> counts = suppressed.get(target);
+        if (counts == null) {
+            counts = suppressed.computeIfAbsent(target, it -> new ConcurrentHashMap<>());
+        }
+        String key = String.valueOf(message);
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= MAX_MESSAGES_PER_LOGGER) {
+                key = OTHER_MESSAGES;
+            }
+            count = counts.computeIfAbsent(key, it -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    private void run() {
+        long lastSummary = System.nanoTime();
+        while (true) {
+            long now = System.nanoTime();
+            long waitNanos = lastSummary + summaryPeriodNanos - now;
+            if (waitNanos <= 0) {
+                summary(TimeUnit.NANOSECONDS.toSeconds(now - lastSummary));
+                lastSummary = now;
+                continue;
+            }
+            Event event;
+            try {
+                event = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (event == CLOSE) {
+                break;
+            }
+            if (event != null) {
+                emitSafely(event);
+            }
+        }
+        drain();
+        summary(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - lastSummary));
+    }
+
+    private void drain() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            if (event != CLOSE) {
+                emitSafely(event);
+            }
+        }
+    }
+
+    private static void emitSafely(Event event) {
+        try {
+            emit(event);
+        } catch (Throwable e) {
+            logger.error("fail to emit rate log.", e);
+        }
+    }
+
+    private static void emit(Event e) {
+        if (e.target instanceof LocationAwareLogger) {
+            ((LocationAwareLogger) e.target).log(e.marker, NO_LOCATION_FQCN, e.level, e.message, null, e.throwable);
+            return;
+        }
+        switch (e.level) {
+            case TRACE_INT:
+                e.target.trace(e.marker, e.message, e.throwable);
+                break;
+            case DEBUG_INT:
+                e.target.debug(e.marker, e.message, e.throwable);
+                break;
+            case INFO_INT:
+                e.target.info(e.marker, e.message, e.throwable);
+                break;
+            case WARN_INT:
+                e.target.warn(e.marker, e.message, e.throwable);
+                break;
+            default:
+                e.target.error(e.marker, e.message, e.throwable);
+                break;
+        }
+    }
+
+    /**
+     * 一个周期内没有再被限流的消息会被移除，移除时并发的计数可能丢失，汇总只是近似值
+     */
+    private void summary(long periodSeconds) {
+        for (Entry<Logger, ConcurrentMap<String, LongAdder>> entry : suppressed.entrySet()) {
+            List<Entry<String, Long>> top = new ArrayList<>();
+            long total = 0;
+            for (Entry<String, LongAdder> item : entry.getValue().entrySet()) {
+                long count = item.getValue().sumThenReset();
+                if (count == 0) {
+                    entry.getValue().remove(item.getKey(), item.getValue());
+                    continue;
+                }
+                total += count;
+                top.add(immutableEntry(item.getKey(), count));
+            }
+            if (top.isEmpty()) {
+                continue;
+            }
+            top.sort(comparingLong((Entry<String, Long> it) -> it.getValue()).reversed());
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(topN, top.size()); i++) {
+                Entry<String, Long> item = top.get(i);
+                sb.append("\n\t").append(item.getValue()).append(" x ").append(item.getKey());
+            }
+            entry.getKey().warn("[RateLogger] {} messages were suppressed {} times in last {}s, top:{}",
+                    top.size(), total, periodSeconds, sb);
+        }
+        long droppedCount = dropped.sumThenReset();
+        if (droppedCount > 0) {
+            logger.warn("{} rate log events were dropped in last {}s, since the async buffer is full.",
+                    droppedCount, periodSeconds);
+        }
+    }
+
+    /**
+     * 输出队列中剩余的日志后停止后台线程，之后的日志直接在调用线程上输出
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (SHARED.isInitialized() && this == SHARED.get()) {
+            throw new IllegalStateException("cannot close the shared dispatcher.");
+        }
+        closed = true;
+        queue.put(CLOSE);
+        thread.join();
+        drain();
+    }
+
+    private static final class Event {
+
+        private final Logger target;
+        private final Marker marker;
+        private final int level;
+        private final String message;
+        private final Throwable throwable;
+
+        private Event(Logger target, Marker marker, int level, String message, Throwable throwable) {
+            this.target = target;
+            this.marker = marker;
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.math.LongMath.saturatedMultiply;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * 集群限流器，从 {@link RateLimitCoordinator} 批量租用令牌，在本地消耗，每次请求不需要远程调用
+ * <p>本地剩余的令牌低于 {@link Builder#refillThreshold} 时，在后台异步租用下一批，同一时刻最多只有一个租用请求；
+ * 租到的令牌在 {@link Builder#leaseDuration} 后过期，避免空闲的实例囤积令牌，在之后集中消耗造成全局的突发。
+ * 租期过去4/5时也会提前续租（只补足到batchSize），所以低流量时令牌不会在请求到来前集中过期。</p>
+ * <p>本地令牌耗尽、且下一批还没有租到时，请求直接被拒绝，不会等待远程调用。
+ * 全局配额耗尽（租到0个）或者协调器异常时，按 {@link Builder#backoff} 指数退避，退避期间不再发起租用请求。</p>
+ * <pre>{@code
+ * ClusterRateLimiter limiter = ClusterRateLimiter.newBuilder()
+ *         .coordinator(redisCoordinator)
+ *         .resource("sms-api")
+ *         .batchSize(50)
+ *         .build();
+ * }</pre>
+ */
+@ThreadSafe
+public class ClusterRateLimiter implements Limiter {
+
+    private static final Logger logger = getLogger(ClusterRateLimiter.class);
+
+    private static final CloseableSupplier<Executor> DEFAULT_EXECUTOR = lazy(() -> newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("cluster-rate-limiter-%d")
+                    .setDaemon(true)
+                    .build()));
+
+    private final RateLimitCoordinator coordinator;
+    private final String resource;
+    private final int batchSize;
+    private final int refillThreshold;
+    private final long leaseNanos;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Executor executor;
+
+    private final AtomicReference<Lease> lease = new AtomicReference<>(new Lease(0, 0, 0));
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private volatile long nextRefillAt;
+    /**
+     * 连续租用失败的次数，只在持有refilling时访问
+     */
+    private int failures;
+    private final LongAdder skip = new LongAdder();
+
+    private ClusterRateLimiter(Builder builder) {
+        this.coordinator = builder.coordinator;
+        this.resource = builder.resource;
+        this.batchSize = builder.batchSize;
+        this.refillThreshold = builder.refillThreshold < 0 ? Math.max(1, batchSize / 5) : builder.refillThreshold;
+        this.leaseNanos = builder.leaseDuration.toNanos();
+        this.minBackoffNanos = builder.minBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff != null ? Math.max(builder.maxBackoff.toNanos(), minBackoffNanos)
+                : Math.max(leaseNanos, minBackoffNanos);
+        this.nextRefillAt = System.nanoTime();
+        this.executor = builder.executor != null ? builder.executor : DEFAULT_EXECUTOR.get();
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 判断本次请求是否获得permits个准许，要么全部获得，要么一个都不消耗
+     *
+     * @param permits 需要的准许数
+     * @return 是否获得准许
+     */
+    public boolean tryAcquire(int permits) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        long now = System.nanoTime();
+        Lease current = lease.get();
+        long remaining = current.take(permits, now);
+        if (remaining < refillThreshold || now - current.refreshNanos >= 0) {
+            refill(now);
+        }
+        if (remaining < 0) {
+            skip.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 本地剩余的未过期令牌数
+     */
+    public long getLocalPermits() {
+        Lease current = lease.get();
+        return current.isExpired(System.nanoTime()) ? 0 : current.remaining.get();
+    }
+
+    private void refill(long now) {
+        if (now - nextRefillAt < 0 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::doRefill);
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+            logger.warn("fail to refill permits of resource:{}", resource, e);
+        }
+    }
+
+    private void doRefill() {
+        try {
+            Lease old = lease.get();
+            long left = old.isExpired(System.nanoTime()) ? 0 : Math.max(0, old.remaining.get());
+            // 提前续租时只补足到batchSize，避免空闲实例越攒越多
+            int granted = coordinator.lease(resource, (int) Math.max(1, batchSize - left));
+            long now = System.nanoTime();
+            if (granted > 0) {
+                // 先发布新的租约再转移旧租约的余量，并发的请求不会看到令牌被清零的中间状态
+                Lease next = new Lease(granted, now + leaseNanos, now + leaseNanos - leaseNanos / 5);
+                lease.set(next);
+                long carry = old.isExpired(now) ? 0 : Math.max(0, old.remaining.getAndSet(0));
+                next.remaining.addAndGet(carry);
+                failures = 0;
+                nextRefillAt = now;
+            } else {
+                backoff(now);
+            }
+        } catch (Throwable e) {
+            backoff(System.nanoTime());
+            logger.warn("fail to lease permits of resource:{}", resource, e);
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private void backoff(long now) {
+        int count = ++failures;
+        long backoff = saturatedMultiply(minBackoffNanos, 1L << Math.min(count - 1, 62));
+        nextRefillAt = now + Math.min(backoff, maxBackoffNanos);
+    }
+
+    @Override
+    public long getSkipCountAndClear() {
+        return skip.sumThenReset();
+    }
+
+    private static final class Lease {
+
+        private final AtomicLong remaining;
+        private final long expireNanos;
+        private final long refreshNanos;
+
+        private Lease(long permits, long expireNanos, long refreshNanos) {
+            this.remaining = new AtomicLong(permits);
+            this.expireNanos = expireNanos;
+            this.refreshNanos = refreshNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expireNanos >= 0;
+        }
+
+        /**
+         * @return 扣减后剩余的令牌数，不够扣减时返回-1
+         */
+        private long take(int permits, long now) {
+            if (isExpired(now)) {
+                return -1;
+            }
+            while (true) {
+                long current = remaining.get();
+                if (current < permits) {
+                    return -1;
+                }
+                if (remaining.compareAndSet(current, current - permits)) {
+                    return current - permits;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link ClusterRateLimiter}构造器
+     */
+    public static final class Builder {
+
+        private RateLimitCoordinator coordinator;
+        private String resource;
+        private int batchSize = 100;
+        private int refillThreshold = -1;
+        private Duration leaseDuration = Duration.ofSeconds(1);
+        private Duration minBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        @CheckReturnValue
+        @Nonnull
+        public Builder coordinator(@Nonnull RateLimitCoordinator coordinator) {
+            this.coordinator = checkNotNull(coordinator);
+            return this;
+        }
+
+        /**
+         * 限流的资源名，同一个资源的所有实例共享全局配额
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder resource(@Nonnull String resource) {
+            this.resource = checkNotNull(resource);
+            return this;
+        }
+
+        /**
+         * 每次租用的令牌数，默认为100
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder batchSize(int batchSize) {
+            checkArgument(batchSize > 0, "invalid batch size:%s", batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 本地剩余令牌低于该值时异步租用下一批，默认为batchSize的1/5
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder refillThreshold(int refillThreshold) {
+            checkArgument(refillThreshold >= 0, "invalid refill threshold:%s", refillThreshold);
+            this.refillThreshold = refillThreshold;
+            return this;
+        }
+
+        /**
+         * 租到的令牌的有效期，默认为1秒，建议与全局配额的补充周期相当
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder leaseDuration(@Nonnull Duration leaseDuration) {
+            checkNotNull(leaseDuration);
+            checkArgument(leaseDuration.toNanos() > 0, "invalid lease duration:%s", leaseDuration);
+            this.leaseDuration = leaseDuration;
+            return this;
+        }
+
+        /**
+         * 租不到令牌或者协调器异常后的退避时间，从minBackoff开始每次翻倍，最多为maxBackoff，默认为50ms~leaseDuration
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder backoff(@Nonnull Duration minBackoff, @Nonnull Duration maxBackoff) {
+            checkNotNull(minBackoff);
+            checkNotNull(maxBackoff);
+            checkArgument(!minBackoff.isNegative(), "invalid min backoff:%s", minBackoff);
+            checkArgument(maxBackoff.compareTo(minBackoff) >= 0, "invalid max backoff:%s", maxBackoff);
+            this.minBackoff = minBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * 异步租用令牌的执行器，默认为一个共享的缓存线程池
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder executor(@Nonnull Executor executor) {
+            this.executor = checkNotNull(executor);
+            return this;
+        }
+
+        /**
+         * 构建限流器，并立即在后台租用第一批令牌
+         */
+        @Nonnull
+        public ClusterRateLimiter build() {
+            checkNotNull(coordinator, "coordinator must be set.");
+            checkNotNull(resource, "resource must be set.");
+            ClusterRateLimiter limiter = new ClusterRateLimiter(this);
+            limiter.refill(System.nanoTime());
+            return limiter;
+        }
+    }
+}
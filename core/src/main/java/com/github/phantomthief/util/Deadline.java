@@ -0,0 +1,280 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.math.LongMath.saturatedAdd;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.github.phantomthief.concurrent.HashedWheelTimer;
+import com.github.phantomthief.concurrent.HashedWheelTimer.Timeout;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * 基于 {@link System#nanoTime()} 的截止时间，并且可以在调用链中传递
+ * <p>通过 {@link #supply}/{@link #run} 执行的代码（包括其中嵌套的调用）可以通过 {@link #current()} 获取当前的截止时间，
+ * 计算剩余的预算，并在来不及完成时主动放弃，而不是只能等待外部粗暴地中断线程：</p>
+ * <pre>{@code
+ * Deadline.after(ofMillis(200)).supply(() -> {
+ *     User user = loadUser(id);
+ *     Deadline deadline = Deadline.current();
+ *     if (deadline.hasTimeFor(ofMillis(50))) {
+ *         user.setRecommends(loadRecommends(id)); // optional part, skip if no time left
+ *     }
+ *     return user;
+ * });
+ * }</pre>
+ * <p>嵌套创建的截止时间不会晚于外层的截止时间。{@link #onExpired} 注册的回调在截止时间到达时由定时器线程执行，
+ * 所有执行范围（包括通过 {@link #propagate} 在其他线程中继续的部分）都结束后，未触发的回调会被丢弃。</p>
+ * <p>提交到其他线程的任务可以通过 {@link #propagate} 携带截止时间，{@link com.github.phantomthief.pool.KeyAffinityExecutor}
+ * 和 {@link com.github.phantomthief.concurrent.MoreFutures#tryWait} 已经内置了这一支持。</p>
+ */
+@ThreadSafe
+public final class Deadline {
+
+    private static final Logger logger = getLogger(Deadline.class);
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final HashedWheelTimer timer;
+
+    private volatile boolean expired;
+
+    /**
+     * 以下字段由this保护
+     */
+    private Timeout timeout;
+    private List<Runnable> hooks;
+    /**
+     * 正在执行的范围数，包括通过 {@link #propagate} 在其他线程中执行的任务
+     */
+    private int scopes;
+    private boolean ended;
+
+    private Deadline(long deadlineNanos, HashedWheelTimer timer) {
+        this.deadlineNanos = deadlineNanos;
+        this.timer = timer;
+    }
+
+    /**
+     * 创建一个在timeout之后到期的截止时间，如果当前已经有更早的截止时间，以更早的为准
+     */
+    @Nonnull
+    public static Deadline after(@Nonnull Duration timeout) {
+        return after(timeout, HashedWheelTimer.sharedTimer());
+    }
+
+    @Nonnull
+    static Deadline after(@Nonnull Duration timeout, @Nonnull HashedWheelTimer timer) {
+        long deadlineNanos = saturatedAdd(System.nanoTime(), checkNotNull(timeout).toNanos());
+        Deadline outer = CURRENT.get();
+        if (outer != null && outer.deadlineNanos - deadlineNanos < 0) {
+            deadlineNanos = outer.deadlineNanos;
+        }
+        return new Deadline(deadlineNanos, timer);
+    }
+
+    /**
+     * @return 当前线程正在执行的截止时间，没有时返回{@code null}
+     */
+    @Nullable
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return 剩余的时间，已经到期时为0
+     */
+    public long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * @return 剩余的时间，已经到期时为0
+     */
+    @Nonnull
+    public Duration remaining() {
+        return Duration.ofNanos(remainingNanos());
+    }
+
+    public boolean isExpired() {
+        return expired || deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @param expectedCost 预计的耗时
+     * @return 剩余的时间是否足够完成预计耗时的工作
+     */
+    public boolean hasTimeFor(@Nonnull Duration expectedCost) {
+        return remainingNanos() >= expectedCost.toNanos();
+    }
+
+    /**
+     * @throws UncheckedTimeoutException 如果已经到期
+     */
+    public void checkNotExpired() {
+        if (isExpired()) {
+            throw new UncheckedTimeoutException("deadline exceeded.");
+        }
+    }
+
+    /**
+     * 注册到期时的回调，用于通知正在执行的工作尽快放弃（例如关闭连接、设置取消标记）
+     * <p>回调在定时器线程执行，应该简短；如果已经到期，立即在当前线程执行。</p>
+     *
+     * @throws IllegalStateException 如果所有执行范围都已经结束，回调永远不会被触发
+     */
+    public void onExpired(@Nonnull Runnable hook) {
+        checkNotNull(hook);
+        synchronized (this) {
+            if (!expired) {
+                checkState(scopes > 0 || !ended, "all scopes of the deadline have ended.");
+                if (hooks == null) {
+                    hooks = new ArrayList<>(2);
+                }
+                hooks.add(hook);
+                if (timeout == null) {
+                    timeout = timer.newTimeout(this::expire, Math.max(0, deadlineNanos - System.nanoTime()),
+                            NANOSECONDS);
+                }
+                return;
+            }
+        }
+        runHook(hook);
+    }
+
+    private void expire() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            expired = true;
+            toRun = hooks;
+            hooks = null;
+            timeout = null;
+        }
+        if (toRun != null) {
+            toRun.forEach(Deadline::runHook);
+        }
+    }
+
+    private static void runHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (Throwable e) {
+            logger.error("", e);
+        }
+    }
+
+    /**
+     * 在当前截止时间的范围内执行supplier，如果这是最后一个结束的执行范围，丢弃未触发的回调
+     */
+    public <T, X extends Throwable> T supply(@Nonnull ThrowableSupplier<T, X> supplier) throws X {
+        retain();
+        try {
+            return attach(supplier);
+        } finally {
+            release();
+        }
+    }
+
+    private <T, X extends Throwable> T attach(ThrowableSupplier<T, X> supplier) throws X {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在当前截止时间的范围内执行runnable，如果这是最后一个结束的执行范围，丢弃未触发的回调
+     */
+    public <X extends Throwable> void run(@Nonnull ThrowableRunnable<X> runnable) throws X {
+        supply(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在提交任务时捕获当前的截止时间，任务执行时恢复；没有截止时间时原样返回task
+     * <p>任务开始执行前如果已经到期，不再执行，直接抛出 {@link UncheckedTimeoutException}，
+     * 提交方拿到的 {@link java.util.concurrent.Future} 会以该异常失败。</p>
+     */
+    @Nonnull
+    public static <T> Callable<T> propagate(@Nonnull Callable<T> task) {
+        checkNotNull(task);
+        Deadline captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            captured.checkNotExpired();
+            return captured.supply(task::call);
+        };
+    }
+
+    /**
+     * 在提交任务时捕获当前的截止时间，任务执行时恢复；没有截止时间时原样返回task
+     * <p>任务开始执行前如果已经到期，直接跳过。</p>
+     */
+    @Nonnull
+    public static <X extends Throwable> ThrowableRunnable<X> propagate(@Nonnull ThrowableRunnable<X> task) {
+        checkNotNull(task);
+        Deadline captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            if (captured.isExpired()) {
+                logger.debug("skip task since deadline exceeded:{}", task);
+                return;
+            }
+            captured.run(task);
+        };
+    }
+
+    private synchronized void retain() {
+        scopes++;
+    }
+
+    /**
+     * 最后一个执行范围结束时，取消定时器并丢弃未触发的回调
+     */
+    private synchronized void release() {
+        if (--scopes > 0) {
+            return;
+        }
+        ended = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+        hooks = null;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + remaining() + "}";
+    }
+}
@@ -1,32 +1,36 @@
 package com.github.phantomthief.util;
 
-import static com.github.phantomthief.tuple.Tuple.tuple;
 import static com.github.phantomthief.util.MoreSuppliers.lazy;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.util.concurrent.MoreExecutors.shutdownAndAwaitTermination;
-import static java.lang.System.currentTimeMillis;
+import static com.google.common.base.Predicates.alwaysFalse;
 import static java.lang.Thread.currentThread;
-import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.Comparator.comparingLong;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.time.Duration;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
 import org.slf4j.Logger;
 
-import com.github.phantomthief.tuple.TwoTuple;
+import com.github.phantomthief.concurrent.HashedWheelTimer;
+import com.github.phantomthief.concurrent.HashedWheelTimer.Timeout;
 import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -41,7 +45,17 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  *  or found the deadline exceeded on time.
  *
  * This helper make another solution:
- *  Gather running tasks in a container and check if there is a deadline occurred periodically.
+ *  Register a timeout for each running task on a {@link HashedWheelTimer}, and cancel it when the task finished.
+ *  Both registering and cancelling are O(1), and each tick only touches the bucket which is expiring,
+ *  no matter how many tasks are running.
+ *  By default, the timeouts are driven by {@link HashedWheelTimer#sharedTimer()}, so no dedicated thread is needed.
+ *
+ * Watchdog mode ({@link #supplyWithWatchdog}) uses the same timeouts as a soft budget:
+ *  the task is never interrupted, while the stack of the slow thread is sampled once when the budget exceeded
+ *  (rate limited across all tasks, and off the timer thread), and the overrun is recorded by its call site
+ *  when the task finished.
+ *  The call site is only resolved for the tasks which overran, so a task finished in time costs a timeout only.
+ *  {@link #getSlowCallSites(int)} reports the call sites which overran the most.
  *
  * @author w.vela
  * Created on 2017-02-24.
@@ -49,26 +63,60 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 public class DeadlineChecker implements AutoCloseable {
 
     private static final Logger logger = getLogger(DeadlineChecker.class);
+    // the budget warnings of all tasks share one limiter, besides the stack sampling limit of each checker.
+    private static final Logger budgetLogger = RateLogger.rateLogger(logger);
 
-    private final Map<Thread, List<DeadlineInfo>> running = new ConcurrentHashMap<>();
+    private static final int SAMPLER_QUEUE_SIZE = 64;
+    /**
+     * the samples exceeding the queue are discarded, sampling is best effort.
+     */
+    private static final CloseableSupplier<Executor> SAMPLER_EXECUTOR = lazy(() -> {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, MINUTES,
+                new LinkedBlockingQueue<>(SAMPLER_QUEUE_SIZE), new ThreadFactoryBuilder()
+                        .setNameFormat("deadline-checker-sampler-%d")
+                        .setDaemon(true)
+                        .build(), new DiscardPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    });
 
-    private final CloseableSupplier<TwoTuple<ExecutorService, ScheduledFuture<?>>> scheduler;
+    private static final long SHARED_TIMER_TICK_NANOS = Duration.ofMillis(10).toNanos();
 
-    private DeadlineChecker(long ticker) {
-        this.scheduler = lazy(() -> {
-            ScheduledExecutorService executor = newSingleThreadScheduledExecutor(
-                    new ThreadFactoryBuilder()
-                            .setNameFormat("deadline-helper-%d")
-                            .build());
-            return tuple(executor, executor.scheduleAtFixedRate(this::checkDeadline, ticker, ticker,
-                    NANOSECONDS));
-        });
+    private static final double DEFAULT_STACK_SAMPLES_PER_SECOND = 1;
+    private static final StackTraceElement UNKNOWN_CALL_SITE = new StackTraceElement("unknown", "unknown", null, -1);
+
+    private final CloseableSupplier<HashedWheelTimer> timer;
+    private final LongAdder running = new LongAdder();
+
+    private final SimpleRateLimiter stackSampler;
+    private final ConcurrentMap<StackTraceElement, SlowCallSite> slowCallSites = new ConcurrentHashMap<>();
+
+    private DeadlineChecker(long ticker, double stackSamplesPerSecond) {
+        if (ticker >= SHARED_TIMER_TICK_NANOS) {
+            this.timer = lazy(HashedWheelTimer::sharedTimer);
+        } else {
+            this.timer = lazy(() -> new HashedWheelTimer("deadline-checker", Duration.ofNanos(ticker), 512));
+        }
+        this.stackSampler = SimpleRateLimiter.create(stackSamplesPerSecond);
     }
 
+    /**
+     * @param minTicker the checking precision. if it's not less than 10ms, the shared timer would be used,
+     *                  otherwise a dedicated timer would be created with this tick.
+     */
     public static DeadlineChecker deadlineWithMinTicker(Duration minTicker) {
+        return deadlineWithMinTicker(minTicker, DEFAULT_STACK_SAMPLES_PER_SECOND);
+    }
+
+    /**
+     * @param minTicker the checking precision, see {@link #deadlineWithMinTicker(Duration)}
+     * @param stackSamplesPerSecond max stacks sampled per second in watchdog mode, default is 1.
+     */
+    public static DeadlineChecker deadlineWithMinTicker(Duration minTicker, double stackSamplesPerSecond) {
         long ticker = minTicker.toNanos();
         checkArgument(ticker > 0, "invalid min ticker, it must be larger than 1ns.");
-        return new DeadlineChecker(ticker);
+        checkArgument(stackSamplesPerSecond > 0, "invalid stack samples per second:%s", stackSamplesPerSecond);
+        return new DeadlineChecker(ticker, stackSamplesPerSecond);
     }
 
     /**
@@ -85,109 +133,261 @@ public class DeadlineChecker implements AutoCloseable {
     }
 
     /**
-     * @param supplier main task which would be run on caller's thread
+     * @param supplier main task which would be run on caller's thread.
+     *                 it could get the remaining budget by {@link Deadline#current()}, which is bounded by the outer one,
+     *                 and give up the work which could not finish in time cooperatively.
      * @param deadlineExceeded triggered in another thread when the main task's deadline exceeded.
      *                         the consumer would be running in ticker's thread, so it should be short and simple.
      */
     public <T, X extends Throwable> T supplyWithDeadline(ThrowableSupplier<T, X> supplier,
             Duration deadline, Consumer<Thread> deadlineExceeded) throws X {
-        scheduler.get();
+        checkNotNull(deadlineExceeded);
         Thread thread = currentThread();
-        DeadlineInfo deadlineInfo = new DeadlineInfo(deadline.toMillis(),
-                thread, deadlineExceeded);
-        running.compute(thread, (t, deadlines) -> {
-            if (deadlines == null) {
-                deadlines = new CopyOnWriteArrayList<>();
+        HashedWheelTimer thisTimer = timer.get();
+        Runnable onExceeded = () -> onDeadlineExceeded(thread, deadlineExceeded);
+        Deadline outer = Deadline.current();
+        Deadline context = Deadline.after(deadline, thisTimer);
+        Timeout timeout = null;
+        if (outer != null && outer.deadlineNanos() == context.deadlineNanos()) {
+            // the context is bounded by the outer one, while the callback should be triggered by its own deadline.
+            timeout = thisTimer.newTimeout(onExceeded, deadline);
+        } else {
+            context.onExpired(onExceeded);
+        }
+        running.increment();
+        try {
+            return context.supply(supplier);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel();
             }
-            deadlines.add(deadlineInfo);
-            return deadlines;
-        });
+            running.decrement();
+        }
+    }
+
+    private void onDeadlineExceeded(Thread thread, Consumer<Thread> deadlineExceeded) {
+        try {
+            deadlineExceeded.accept(thread);
+        } catch (Throwable e) {
+            logger.error("", e);
+        }
+    }
+
+    /**
+     * watchdog mode, the budget is soft: the task would never be interrupted.
+     *
+     * @see #supplyWithWatchdog
+     */
+    public <X extends Throwable> void runWithWatchdog(ThrowableRunnable<X> runnable, Duration budget) throws X {
+        checkNotNull(runnable);
+        supplyWithWatchdog(() -> {
+            runnable.run();
+            return null;
+        }, budget);
+    }
+
+    /**
+     * watchdog mode, the budget is soft: the task would never be interrupted.
+     * when the budget exceeded, the stack of caller's thread would be sampled (rate limited),
+     * and the overrun would be recorded by the call site when the task finished.
+     * the call site is resolved only when the task overran, the tasks finished in time don't pay for it.
+     *
+     * @param supplier main task which would be run on caller's thread.
+     * @see #getSlowCallSites(int)
+     */
+    public <T, X extends Throwable> T supplyWithWatchdog(ThrowableSupplier<T, X> supplier, Duration budget)
+            throws X {
+        checkNotNull(supplier);
+        long budgetNanos = budget.toNanos();
+        checkArgument(budgetNanos > 0, "invalid budget:%s", budget);
+        Thread thread = currentThread();
+        Watch watch = new Watch();
+        long start = System.nanoTime();
+        Timeout timeout = timer.get().newTimeout(() -> onBudgetExceeded(watch, thread, budget), budgetNanos,
+                NANOSECONDS);
+        running.increment();
         try {
             return supplier.get();
         } finally {
-            running.compute(thread, (t, deadlines) -> {
-                if (deadlines == null) {
-                    return null;
-                }
-                deadlines.remove(deadlineInfo);
-                if (deadlines.isEmpty()) {
-                    return null;
-                } else {
-                    return deadlines;
-                }
-            });
-        }
-    }
-
-    private void checkDeadline() {
-        Set<Thread> changedThreads = new HashSet<>();
-        running.forEach((thread, deadlines) -> {
-            for (DeadlineInfo deadline : deadlines) {
-                if (deadline.tryCheckDeadlineExceeded()) {
-                    // deadlines is a COWArrayList, so using remove instead of iterator.remove
-                    deadlines.remove(deadline);
-                    changedThreads.add(thread);
-                }
+            watch.finished = true;
+            running.decrement();
+            timeout.cancel();
+            long overrun = System.nanoTime() - start - budgetNanos;
+            if (overrun > 0) {
+                recordOverrun(overrun, watch.stack);
             }
-        });
-        changedThreads.forEach(thread -> {
-            running.compute(thread, (t, deadlines) -> {
-                if (deadlines == null) {
-                    return null;
-                }
-                if (deadlines.isEmpty()) {
-                    return null;
-                } else {
-                    return deadlines;
-                }
-            });
-        });
+        }
+    }
+
+    /**
+     * running on the timer thread, which is shared by all timeouts,
+     * so the stack sampling and logging are handed over to {@link #SAMPLER_EXECUTOR}.
+     */
+    private void onBudgetExceeded(Watch watch, Thread thread, Duration budget) {
+        if (!watch.finished && stackSampler.tryAcquire()) {
+            SAMPLER_EXECUTOR.get().execute(() -> sampleStack(watch, thread, budget));
+        }
+    }
+
+    private static void sampleStack(Watch watch, Thread thread, Duration budget) {
+        if (watch.finished) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        if (watch.finished) {
+            // the thread has moved on, the stack doesn't belong to the task.
+            return;
+        }
+        watch.stack = stack;
+        if (budgetLogger.isWarnEnabled()) {
+            StringBuilder sb = new StringBuilder();
+            for (StackTraceElement element : stack) {
+                sb.append("\n\tat ").append(element);
+            }
+            budgetLogger.warn("task exceeded its budget {}, thread:{}, stack:{}", budget, thread.getName(), sb);
+        }
+    }
+
+    /**
+     * running on caller's thread, so the call site could be resolved from the current stack.
+     */
+    private void recordOverrun(long overrunNanos, @Nullable StackTraceElement[] sampled) {
+        StackTraceElement callerPlace = CallSites.callerPlace();
+        SlowCallSite site = slowCallSites.computeIfAbsent(callerPlace == null ? UNKNOWN_CALL_SITE : callerPlace,
+                SlowCallSite::new);
+        site.recordOverrun(overrunNanos);
+        if (sampled != null) {
+            site.lastStack = sampled;
+        }
     }
 
+    /**
+     * @param topN max count of call sites returned
+     * @return the call sites which exceeded their budgets, order by total overrun time desc.
+     */
+    @Nonnull
+    public List<SlowCallSite> getSlowCallSites(int topN) {
+        checkArgument(topN > 0, "invalid top n:%s", topN);
+        return slowCallSites.values().stream()
+                .filter(it -> it.getExceededCount() > 0)
+                .sorted(comparingLong(SlowCallSite::getTotalOverrunNanos)
+                        .thenComparingLong(SlowCallSite::getExceededCount)
+                        .reversed())
+                .limit(topN)
+                .collect(toList());
+    }
+
+    /**
+     * clear all records of watchdog mode
+     */
+    public void resetSlowCallSites() {
+        slowCallSites.clear();
+    }
+
+    /**
+     * release the dedicated timer if it was created.
+     * the checker could still be used after closed, and the timer would be re-created on demand.
+     */
     @Override
     public void close() {
-        scheduler.tryClose(tuple -> {
-            tuple.getSecond().cancel(true);
-            shutdownAndAwaitTermination(tuple.getFirst(), 1, MINUTES);
-            running.clear();
+        timer.tryClose(it -> {
+            if (it != HashedWheelTimer.sharedTimer()) {
+                it.close();
+            }
         });
     }
 
-    private static class DeadlineInfo {
+    /**
+     * for test purpose
+     */
+    long getRunningCount() {
+        return running.sum();
+    }
+
+    /**
+     * the statistics of a call site in watchdog mode
+     */
+    @ThreadSafe
+    public static final class SlowCallSite {
+
+        private final StackTraceElement callSite;
+        private final LongAdder exceeded = new LongAdder();
+        private final LongAdder overrun = new LongAdder();
+        private final LongAccumulator maxOverrun = new LongAccumulator(Math::max, 0);
+        private volatile StackTraceElement[] lastStack;
 
-        private final long startTime;
-        private final long deadline;
-        private final Thread thread;
-        private final Consumer<Thread> deadlineExceeded;
+        private SlowCallSite(StackTraceElement callSite) {
+            this.callSite = callSite;
+        }
 
-        DeadlineInfo(long deadline, Thread thread, Consumer<Thread> deadlineExceeded) {
-            this.startTime = currentTimeMillis();
-            this.deadline = deadline;
-            this.thread = thread;
-            this.deadlineExceeded = checkNotNull(deadlineExceeded);
+        private void recordOverrun(long overrunNanos) {
+            exceeded.increment();
+            overrun.add(overrunNanos);
+            maxOverrun.accumulate(overrunNanos);
         }
 
         /**
-         * @return {@code true} if deadline exceeded and execute the consumer.
+         * @return the caller of {@link #supplyWithWatchdog}/{@link #runWithWatchdog}
          */
-        boolean tryCheckDeadlineExceeded() {
-            if (currentTimeMillis() - startTime >= deadline) {
-                try {
-                    deadlineExceeded.accept(thread);
-                } catch (Throwable e) {
-                    logger.error("", e);
-                }
-                return true;
-            } else {
-                return false;
-            }
+        @Nonnull
+        public StackTraceElement getCallSite() {
+            return callSite;
+        }
+
+        /**
+         * @return times the budget exceeded, recorded when the task finished.
+         */
+        public long getExceededCount() {
+            return exceeded.sum();
+        }
+
+        /**
+         * @return total overrun time of the finished tasks
+         */
+        public long getTotalOverrunNanos() {
+            return overrun.sum();
+        }
+
+        public long getMaxOverrunNanos() {
+            return maxOverrun.get();
+        }
+
+        /**
+         * @return the latest sampled stack, or {@code null} if it was never sampled.
+         */
+        @Nullable
+        public StackTraceElement[] getLastStack() {
+            return lastStack;
+        }
+
+        @Override
+        public String toString() {
+            return "SlowCallSite{callSite=" + callSite + ", exceeded=" + getExceededCount()
+                    + ", totalOverrun=" + Duration.ofNanos(getTotalOverrunNanos())
+                    + ", maxOverrun=" + Duration.ofNanos(getMaxOverrunNanos()) + "}";
         }
     }
 
     /**
-     * for test purpose
+     * the sampled stack of a watchdog task, written by the sampler thread.
+     */
+    private static final class Watch {
+
+        private volatile StackTraceElement[] stack;
+        private volatile boolean finished;
+    }
+
+    /**
+     * resolve the caller of {@link DeadlineChecker} by {@link StackTraceProvider},
+     * which skips the frames of this class and then the frames of {@link DeadlineChecker}.
      */
-    Map<Thread, List<DeadlineInfo>> getRunning() {
-        return running;
+    private static final class CallSites {
+
+        private static final String NAME = CallSites.class.getName();
+
+        @Nullable
+        private static StackTraceElement callerPlace() {
+            return MoreReflection.getStackTraceProvider().getCallerPlace(NAME::equals, alwaysFalse());
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 单进程内的 {@link RateLimitCoordinator} 实现，每个资源的全局配额由一个令牌桶模式的 {@link SimpleRateLimiter} 表示
+ * <p>主要用于测试，也可以用于同一进程内多个 {@link ClusterRateLimiter} 共享配额的场景。</p>
+ */
+@ThreadSafe
+public class InMemoryRateLimitCoordinator implements RateLimitCoordinator {
+
+    private final Function<String, SimpleRateLimiter> factory;
+    private final ConcurrentMap<String, SimpleRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * @param factory 为每个资源创建全局配额的令牌桶，建议使用 {@link SimpleRateLimiter#create(double, int)} 创建
+     */
+    public InMemoryRateLimitCoordinator(@Nonnull Function<String, SimpleRateLimiter> factory) {
+        this.factory = checkNotNull(factory);
+    }
+
+    @Override
+    public int lease(@Nonnull String resource, int permits) {
+        checkNotNull(resource);
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        return limiters.computeIfAbsent(resource, factory).tryAcquireAtMost(permits);
+    }
+}
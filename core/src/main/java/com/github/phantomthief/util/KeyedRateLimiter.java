@@ -0,0 +1,354 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.math.LongMath.saturatedMultiply;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 按Key限流的限流器，适用于按租户、按IP等Key数量很大的限流场景
+ * <p>每个Key的状态只有一个long（GCRA的理论到达时间，语义同 {@link SimpleRateLimiter} 的令牌桶模式），
+ * 存储在分段的开放寻址表中，不会为每个Key创建对象；每个分段单独加锁，不同分段之间的请求互不影响。</p>
+ * <p>令牌桶已经补满的Key与从未出现过的Key状态完全相同，因此可以随时清除而不影响限流结果；
+ * 分段满时优先清除这些空闲Key，仍然超过 {@link Builder#maximumSize} 时，再清除被限制程度最低的Key，
+ * 一次清除到上限的3/4，之后的插入不需要每次都重新扫描。</p>
+ * <pre>{@code
+ * KeyedRateLimiter<String> limiter = KeyedRateLimiter.newBuilder()
+ *         .permitsPerSecond(100)
+ *         .maxBurst(200)
+ *         .maximumSize(1_000_000)
+ *         .build();
+ * if (!limiter.tryAcquire(tenantId)) {
+ *     throw new TooManyRequestsException();
+ * }
+ * }</pre>
+ */
+@ThreadSafe
+public final class KeyedRateLimiter<K> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final long periodNanos;
+    private final int maxBurst;
+    private final long burstNanos;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final LongAdder skip = new LongAdder();
+
+    private KeyedRateLimiter(Builder builder) {
+        this.periodNanos = builder.periodNanos;
+        this.maxBurst = builder.maxBurst;
+        this.burstNanos = saturatedMultiply(periodNanos, maxBurst);
+        int segmentCount = tableSizeFor(builder.concurrencyLevel);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        int maxEntries = Math.max(1, (int) ((builder.maximumSize + segmentCount - 1) / segmentCount));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxEntries, burstNanos);
+        }
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 判断key本次请求是否获得准许
+     */
+    public boolean tryAcquire(@Nonnull K key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * 判断key本次请求是否获得permits个准许，要么全部获得，要么一个都不消耗
+     *
+     * @param permits 需要的准许数，超过maxBurst时永远不会成功
+     */
+    public boolean tryAcquire(@Nonnull K key, int permits) {
+        checkNotNull(key);
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        if (permits <= maxBurst) {
+            int hash = spread(key.hashCode());
+            Segment segment = segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+            if (segment.tryAcquire(key, hash, periodNanos * permits, System.nanoTime())) {
+                return true;
+            }
+        }
+        skip.increment();
+        return false;
+    }
+
+    /**
+     * @return 当前记录的Key数量，包含尚未被清除的空闲Key
+     */
+    public long size() {
+        long result = 0;
+        for (Segment segment : segments) {
+            result += segment.size();
+        }
+        return result;
+    }
+
+    /**
+     * 计算到上次执行本操作前，共计多少个没有获取到准许，计算完成后重新计数
+     *
+     * @return 累计跳过的请求数
+     */
+    public long getSkipCountAndClear() {
+        return skip.sumThenReset();
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(long n) {
+        if (n >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        if (n <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit((int) n - 1) << 1;
+    }
+
+    private static final class Segment {
+
+        private final int maxEntries;
+        /**
+         * 达到maxEntries时一次清除到这个水位，避免之后每插入一个新Key都要重新扫描整个分段
+         */
+        private final int lowWater;
+        private final long burstNanos;
+        private final int maxCapacity;
+
+        private Object[] keys;
+        private long[] tats;
+        private int size;
+        /**
+         * 选择清除阈值时复用的临时数组
+         */
+        private long[] debts;
+
+        private Segment(int maxEntries, long burstNanos) {
+            this.maxEntries = maxEntries;
+            this.lowWater = Math.max(1, (int) (maxEntries * 3L / 4));
+            this.burstNanos = burstNanos;
+            this.maxCapacity = Math.max(MIN_CAPACITY, tableSizeFor(maxEntries * 4L / 3 + 2));
+            int capacity = Math.min(MIN_CAPACITY, maxCapacity);
+            this.keys = new Object[capacity];
+            this.tats = new long[capacity];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized boolean tryAcquire(Object key, int hash, long cost, long now) {
+            int mask = keys.length - 1;
+            int i = hash & mask;
+            for (Object k; (k = keys[i]) != null; i = (i + 1) & mask) {
+                if (k.equals(key)) {
+                    long tat = tats[i];
+                    long base = tat - now < 0 ? now : tat;
+                    if (cost > burstNanos - (base - now)) {
+                        return false;
+                    }
+                    tats[i] = base + cost;
+                    return true;
+                }
+            }
+            // 新的Key，令牌桶是满的，cost一定不会超过burstNanos
+            if (size >= maxEntries || size >= keys.length - (keys.length >>> 2)) {
+                makeRoom(now);
+                mask = keys.length - 1;
+                i = hash & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+            }
+            keys[i] = key;
+            tats[i] = now + cost;
+            size++;
+            return true;
+        }
+
+        /**
+         * 清除空闲的Key，并按需扩容；达到maxEntries时，再按被限制程度从低到高清除到lowWater
+         */
+        private void makeRoom(long now) {
+            int live = 0;
+            if (debts == null || debts.length < keys.length) {
+                debts = new long[keys.length];
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    long debt = tats[i] - now;
+                    if (debt > 0) {
+                        debts[live++] = debt;
+                    }
+                }
+            }
+            long evictDebt = 0;
+            if (size >= maxEntries && live > lowWater) {
+                Arrays.sort(debts, 0, live);
+                evictDebt = debts[live - lowWater - 1];
+            }
+            int survivors = 0;
+            for (int i = 0; i < live; i++) {
+                if (debts[i] > evictDebt) {
+                    survivors++;
+                }
+            }
+            int capacity = Math.min(maxCapacity, Math.max(MIN_CAPACITY, tableSizeFor((survivors + 1) * 2L)));
+            if (capacity == keys.length) {
+                removeInPlace(now, evictDebt);
+            } else {
+                rehash(capacity, now, evictDebt);
+            }
+        }
+
+        private void removeInPlace(long now, long evictDebt) {
+            for (int i = 0; i < keys.length; i++) {
+                while (keys[i] != null && tats[i] - now <= evictDebt) {
+                    removeAt(i);
+                }
+            }
+        }
+
+        /**
+         * 线性探测表的删除：把后面探测链上的Key向前移动填补空位，不需要墓碑
+         */
+        private void removeAt(int gap) {
+            int mask = keys.length - 1;
+            size--;
+            for (int distance = 1; ; distance++) {
+                int slot = (gap + distance) & mask;
+                Object existing = keys[slot];
+                if (existing == null) {
+                    break;
+                }
+                int ideal = spread(existing.hashCode()) & mask;
+                if (((slot - ideal) & mask) >= distance) {
+                    keys[gap] = existing;
+                    tats[gap] = tats[slot];
+                    gap = slot;
+                    distance = 0;
+                }
+            }
+            keys[gap] = null;
+            tats[gap] = 0;
+        }
+
+        private void rehash(int capacity, long now, long evictDebt) {
+            Object[] oldKeys = keys;
+            long[] oldTats = tats;
+            Object[] newKeys = new Object[capacity];
+            long[] newTats = new long[capacity];
+            int mask = capacity - 1;
+            int survivors = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                Object key = oldKeys[i];
+                if (key != null && oldTats[i] - now > evictDebt) {
+                    int j = spread(key.hashCode()) & mask;
+                    while (newKeys[j] != null) {
+                        j = (j + 1) & mask;
+                    }
+                    newKeys[j] = key;
+                    newTats[j] = oldTats[i];
+                    survivors++;
+                }
+            }
+            keys = newKeys;
+            tats = newTats;
+            size = survivors;
+        }
+    }
+
+    /**
+     * {@link KeyedRateLimiter}构造器
+     */
+    public static final class Builder {
+
+        private long periodNanos;
+        private int maxBurst = 1;
+        private long maximumSize = 1 << 20;
+        private int concurrencyLevel = 64;
+
+        private Builder() {
+        }
+
+        /**
+         * 每个Key每秒补充的准许数
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder permitsPerSecond(double permitsPerSecond) {
+            checkArgument(permitsPerSecond > 0, "invalid permits per second:%s", permitsPerSecond);
+            this.periodNanos = (long) (SECONDS.toNanos(1) / permitsPerSecond);
+            return this;
+        }
+
+        /**
+         * 每个Key补充一个准许的时间间隔
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder period(@Nonnull Duration periodPerTimes) {
+            this.periodNanos = checkNotNull(periodPerTimes).toNanos();
+            return this;
+        }
+
+        /**
+         * 每个Key最多积攒的准许数，默认为1，即不允许突发
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder maxBurst(int maxBurst) {
+            checkArgument(maxBurst > 0, "invalid max burst:%s", maxBurst);
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        /**
+         * 最多记录的Key数量（近似值，按分段平均分配），默认为2^20
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder maximumSize(long maximumSize) {
+            checkArgument(maximumSize > 0, "invalid maximum size:%s", maximumSize);
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 分段数，会向上取整为2的幂，默认为64
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder concurrencyLevel(int concurrencyLevel) {
+            checkArgument(concurrencyLevel > 0 && concurrencyLevel <= 1 << 16,
+                    "invalid concurrency level:%s", concurrencyLevel);
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        @Nonnull
+        public <K> KeyedRateLimiter<K> build() {
+            checkArgument(periodNanos > 0, "permitsPerSecond or period must be set.");
+            return new KeyedRateLimiter<>(this);
+        }
+    }
+}
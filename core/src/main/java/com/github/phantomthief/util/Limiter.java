@@ -0,0 +1,58 @@
+package com.github.phantomthief.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 限流器的公共接口
+ * <p>按速率限流的实现（如 {@link SimpleRateLimiter}、{@link SlidingWindowRateLimiter}）获得准许后不需要归还；
+ * 按并发限流的实现（如 {@link AdaptiveConcurrencyLimiter}）在请求结束后，必须且只能调用一次
+ * {@link #onSuccess(long)} 或 {@link #onDropped()}，以归还准许并反馈下游的状态。</p>
+ * <pre>{@code
+ * if (!limiter.tryAcquire()) {
+ *     return fallback();
+ * }
+ * long start = System.nanoTime();
+ * try {
+ *     Result result = callDownstream();
+ *     limiter.onSuccess(System.nanoTime() - start);
+ *     return result;
+ * } catch (Throwable e) {
+ *     // 任何异常都必须归还准许，否则占用的并发数永远不会释放
+ *     limiter.onDropped();
+ *     throw e;
+ * }
+ * }</pre>
+ */
+@ThreadSafe
+public interface Limiter {
+
+    /**
+     * 判断本次请求是否获得准许
+     *
+     * @return 是否获得准许
+     */
+    boolean tryAcquire();
+
+    /**
+     * 获得准许的请求正常完成
+     *
+     * @param elapsedNanos 请求的耗时
+     */
+    default void onSuccess(long elapsedNanos) {
+        // do nothing
+    }
+
+    /**
+     * 获得准许的请求被下游丢弃（超时、过载等），对于根据下游状态调整的实现，会降低限制
+     */
+    default void onDropped() {
+        // do nothing
+    }
+
+    /**
+     * 计算到上次执行本操作前，共计多少个没有获取到准许，计算完成后重新计数
+     *
+     * @return 累计跳过的请求数
+     */
+    long getSkipCountAndClear();
+}
@@ -0,0 +1,122 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link RateLogger#perMessageRateLogger} 使用的按消息区分的限流器表
+ * <p>消息格式一般是常量，所以查找时先比较引用，再比较equals；{@link String} 会缓存hashCode，查找不需要计算哈希。
+ * 查找无锁，只有第一次出现的消息才需要加锁插入。</p>
+ * <p>表的容量按需翻倍，最多容纳maxSize条消息；超过之后新出现的消息共享fallback限流器，
+ * 已有消息的限流不受影响，不会像LRU缓存那样因为频繁淘汰而导致限流失效。</p>
+ */
+@ThreadSafe
+final class MessageRateLimiters {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Supplier<SimpleRateLimiter> factory;
+    private final SimpleRateLimiter fallback;
+    private final int maxSize;
+
+    /**
+     * 引用本身是volatile的，元素在锁内写入；{@link Entry} 的字段都是final的，无锁读到的元素一定是完整的
+     */
+    private volatile Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int size;
+    /**
+     * 已满之后，未知的消息不再进入加锁的插入路径，避免动态拼接的消息在日志风暴中争抢锁
+     */
+    private volatile boolean full;
+
+    MessageRateLimiters(int maxSize, @Nonnull Supplier<SimpleRateLimiter> factory,
+            @Nonnull SimpleRateLimiter fallback) {
+        checkArgument(maxSize > 0, "invalid max size:%s", maxSize);
+        this.factory = checkNotNull(factory);
+        this.fallback = checkNotNull(fallback);
+        this.maxSize = maxSize;
+    }
+
+    @Nonnull
+    SimpleRateLimiter get(@Nonnull String msg) {
+        Entry[] tab = table;
+        int mask = tab.length - 1;
+        for (int i = spread(msg.hashCode()) & mask;; i = (i + 1) & mask) {
+            Entry e = tab[i];
+            if (e == null) {
+                return full ? fallback : putIfAbsent(msg);
+            }
+            if (e.msg == msg || e.msg.equals(msg)) {
+                return e.limiter;
+            }
+        }
+    }
+
+    private synchronized SimpleRateLimiter putIfAbsent(String msg) {
+        Entry[] tab = table;
+        int index = indexOf(tab, msg);
+        if (tab[index] != null) {
+            return tab[index].limiter;
+        }
+        if (size >= maxSize) {
+            full = true;
+            return fallback;
+        }
+        // 负载因子不超过0.5，保证线性探测足够短
+        if ((size + 1) * 2 > tab.length) {
+            tab = resize(tab);
+            index = indexOf(tab, msg);
+        }
+        Entry entry = new Entry(msg, factory.get());
+        tab[index] = entry;
+        size++;
+        return entry.limiter;
+    }
+
+    private Entry[] resize(Entry[] old) {
+        Entry[] tab = new Entry[old.length << 1];
+        for (Entry e : old) {
+            if (e != null) {
+                tab[indexOf(tab, e.msg)] = e;
+            }
+        }
+        table = tab;
+        return tab;
+    }
+
+    /**
+     * @return msg所在的位置，不存在时为可以插入的空位
+     */
+    private static int indexOf(Entry[] tab, String msg) {
+        int mask = tab.length - 1;
+        int i = spread(msg.hashCode()) & mask;
+        while (tab[i] != null && !tab[i].msg.equals(msg)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+
+        private final String msg;
+        private final SimpleRateLimiter limiter;
+
+        private Entry(String msg, SimpleRateLimiter limiter) {
+            this.msg = msg;
+            this.limiter = limiter;
+        }
+    }
+}
@@ -9,23 +9,38 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import com.carrotsearch.hppc.cursors.ObjectIntCursor;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multimap;
+import com.google.common.math.IntMath;
 
 /**
  * MoreCollectors增强工具集合
@@ -38,6 +53,9 @@ public final class MoreCollectors {
     public static final Set<Collector.Characteristics> CH_ID = Collections
             .unmodifiableSet(EnumSet.of(Collector.Characteristics.IDENTITY_FINISH));
     public static final Set<Collector.Characteristics> CH_NOID = Collections.emptySet();
+    private static final Set<Collector.Characteristics> CH_CONCURRENT_NOID = Collections
+            .unmodifiableSet(EnumSet.of(Collector.Characteristics.CONCURRENT,
+                    Collector.Characteristics.UNORDERED));
 
     /**
      * 静态工具类，禁止初始化为对象
@@ -119,6 +137,346 @@ public final class MoreCollectors {
         }, CH_ID);
     }
 
+    /**
+     * 将Stream转换为键为long的{@link Map}类型的集合的搜集器
+     * <p>与{@link #toIntMap}相同，使用{@link LongObjectHashMap}作为{@link Map}容器以降低开销，键重复时后面的值覆盖前面的值。</p>
+     *
+     * @param keyMapper {@link Map}的键映射器，将集合对象类型{@link T}映射为long类型
+     * @param valueMapper {@link Map}的值映射器，将集合对象类型{@link T}映射为{@link U}类型
+     * @param <T> 集合类型泛型
+     * @param <U> {@link Map}的结果值类型泛型
+     * @return 搜集器对象
+     */
+    public static <T, U> Collector<T, ?, LongObjectHashMap<U>> toLongMap(
+            ToLongFunction<? super T> keyMapper, Function<? super T, ? extends U> valueMapper) {
+        BiConsumer<LongObjectHashMap<U>, T> accumulator = (map, element) -> map
+                .put(keyMapper.applyAsLong(element), valueMapper.apply(element));
+        return new CollectorImpl<>(LongObjectHashMap::new, accumulator, (m1, m2) -> {
+            m1.putAll(m2);
+            return m1;
+        }, CH_ID);
+    }
+
+    /**
+     * 统计Stream中每个元素出现次数的搜集器
+     * <p>使用{@link ObjectIntHashMap}计数，与{@code groupingBy(classifier, counting())}相比不需要为每个元素装箱一个{@link Long}。</p>
+     *
+     * @param classifier 元素映射器，将输入流的类型T映射为计数的Key
+     * @param <T> 输入流的元素类型泛型
+     * @param <K> 计数的Key类型泛型
+     * @return 搜集器对象
+     */
+    public static <T, K> Collector<T, ?, ObjectIntHashMap<K>> toObjectIntCounts(
+            Function<? super T, ? extends K> classifier) {
+        return toObjectIntCounts(classifier, element -> 1);
+    }
+
+    /**
+     * 统计Stream中每个元素出现次数的搜集器，每个元素的次数由countMapper指定
+     *
+     * @param classifier 元素映射器，将输入流的类型T映射为计数的Key
+     * @param countMapper 元素个数映射器
+     * @param <T> 输入流的元素类型泛型
+     * @param <K> 计数的Key类型泛型
+     * @return 搜集器对象
+     */
+    public static <T, K> Collector<T, ?, ObjectIntHashMap<K>> toObjectIntCounts(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> countMapper) {
+        BiConsumer<ObjectIntHashMap<K>, T> accumulator = (map, element) -> map
+                .addTo(classifier.apply(element), countMapper.applyAsInt(element));
+        return new CollectorImpl<>(ObjectIntHashMap::new, accumulator, (m1, m2) -> {
+            for (ObjectIntCursor<K> cursor : m2) {
+                m1.addTo(cursor.key, cursor.value);
+            }
+            return m1;
+        }, CH_ID);
+    }
+
+    /**
+     * 按int类型的Key对元素进行分组的搜集器，每个组一个{@link List}
+     *
+     * @param classifier 分类器，将元素映射为分组的Key
+     * @param <T> 输入流的元素类型泛型
+     * @return 搜集器对象
+     */
+    public static <T> Collector<T, ?, IntObjectHashMap<List<T>>> groupingByInt(
+            ToIntFunction<? super T> classifier) {
+        return groupingByInt(classifier, toList());
+    }
+
+    /**
+     * 按int类型的Key对元素进行分组的搜集器，支持定义每组的搜集方式
+     * <p>使用{@link IntObjectHashMap}作为分组容器，分组的Key不需要装箱。</p>
+     *
+     * @param classifier 分类器，将元素映射为分组的Key
+     * @param downstream 每组组内元素的搜集器
+     * @param <T> 输入流的元素类型泛型
+     * @param <A> 每组元素的累积类型泛型
+     * @param <D> 组内聚合结果的泛型
+     * @return 搜集器对象
+     */
+    public static <T, A, D> Collector<T, ?, IntObjectHashMap<D>> groupingByInt(
+            ToIntFunction<? super T> classifier, Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        BiConsumer<IntObjectHashMap<A>, T> accumulator = (m, t) -> {
+            int key = classifier.applyAsInt(t);
+            int index = m.indexOf(key);
+            A container;
+            if (index >= 0) {
+                container = m.indexGet(index);
+            } else {
+                container = downstreamSupplier.get();
+                m.indexInsert(index, key, container);
+            }
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<IntObjectHashMap<A>> merger = (m1, m2) -> {
+            for (IntObjectCursor<A> cursor : m2) {
+                int index = m1.indexOf(cursor.key);
+                if (index >= 0) {
+                    m1.indexReplace(index, downstreamCombiner.apply(m1.indexGet(index), cursor.value));
+                } else {
+                    m1.indexInsert(index, cursor.key, cursor.value);
+                }
+            }
+            return m1;
+        };
+
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<>(IntObjectHashMap::new, accumulator, merger, CH_ID);
+        } else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<IntObjectHashMap<A>, IntObjectHashMap<D>> finisher = intermediate -> {
+                for (IntObjectCursor<A> cursor : intermediate) {
+                    intermediate.indexReplace(cursor.index, downstreamFinisher.apply(cursor.value));
+                }
+                @SuppressWarnings("unchecked")
+                IntObjectHashMap<D> castResult = (IntObjectHashMap<D>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(IntObjectHashMap::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * {@link #toIntMap}的并发版本，用于并行流
+     * <p>{@link #toIntMap}在并行流中每个分片一个{@link IntObjectHashMap}，最后逐个putAll合并，数据量大时主要耗时在合并上；
+     * 本方法的特征为{@link Collector.Characteristics#CONCURRENT}和{@link Collector.Characteristics#UNORDERED}，
+     * 所有线程写入同一个按Key分段加锁的容器，结束时各段的Key互不重叠，直接拼接即可。</p>
+     * <p>键重复时保留哪一个值是不确定的。</p>
+     *
+     * @param keyMapper {@link Map}的键映射器，将集合对象类型{@link T}映射为int类型
+     * @param valueMapper {@link Map}的值映射器，将集合对象类型{@link T}映射为{@link U}类型
+     * @param <T> 集合类型泛型
+     * @param <U> {@link Map}的结果值类型泛型
+     * @return 搜集器对象
+     */
+    public static <T, U> Collector<T, ?, IntObjectHashMap<U>> toConcurrentIntMap(
+            ToIntFunction<? super T> keyMapper, Function<? super T, ? extends U> valueMapper) {
+        BiConsumer<Striped<IntObjectHashMap<U>>, T> accumulator = (striped, element) -> {
+            int key = keyMapper.applyAsInt(element);
+            U value = valueMapper.apply(element);
+            IntObjectHashMap<U> stripe = striped.stripe(key);
+            synchronized (stripe) {
+                stripe.put(key, value);
+            }
+        };
+        return new CollectorImpl<>(() -> new Striped<>(IntObjectHashMap::new), accumulator,
+                Striped.merger(IntObjectHashMap::putAll), striped -> {
+                    IntObjectHashMap<U> result = new IntObjectHashMap<>(striped.sum(IntObjectHashMap::size));
+                    striped.forEach(result::putAll);
+                    return result;
+                }, CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * {@link #toObjectIntCounts(Function)}的并发版本，用于并行流
+     *
+     * @param classifier 元素映射器，将输入流的类型T映射为计数的Key
+     * @param <T> 输入流的元素类型泛型
+     * @param <K> 计数的Key类型泛型
+     * @return 搜集器对象
+     * @see #toConcurrentIntMap
+     */
+    public static <T, K> Collector<T, ?, ObjectIntHashMap<K>> toConcurrentObjectIntCounts(
+            Function<? super T, ? extends K> classifier) {
+        return toConcurrentObjectIntCounts(classifier, element -> 1);
+    }
+
+    /**
+     * {@link #toObjectIntCounts(Function, ToIntFunction)}的并发版本，用于并行流
+     *
+     * @param classifier 元素映射器，将输入流的类型T映射为计数的Key
+     * @param countMapper 元素个数映射器
+     * @param <T> 输入流的元素类型泛型
+     * @param <K> 计数的Key类型泛型
+     * @return 搜集器对象
+     * @see #toConcurrentIntMap
+     */
+    public static <T, K> Collector<T, ?, ObjectIntHashMap<K>> toConcurrentObjectIntCounts(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> countMapper) {
+        BiConsumer<Striped<ObjectIntHashMap<K>>, T> accumulator = (striped, element) -> {
+            K key = classifier.apply(element);
+            int count = countMapper.applyAsInt(element);
+            ObjectIntHashMap<K> stripe = striped.stripe(Objects.hashCode(key));
+            synchronized (stripe) {
+                stripe.addTo(key, count);
+            }
+        };
+        return new CollectorImpl<>(() -> new Striped<>(ObjectIntHashMap::new), accumulator,
+                Striped.merger((m1, m2) -> {
+                    for (ObjectIntCursor<K> cursor : m2) {
+                        m1.addTo(cursor.key, cursor.value);
+                    }
+                }), striped -> {
+                    ObjectIntHashMap<K> result = new ObjectIntHashMap<>(striped.sum(ObjectIntHashMap::size));
+                    striped.forEach(result::putAll);
+                    return result;
+                }, CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * {@link #groupingByInt(ToIntFunction)}的并发版本，用于并行流
+     *
+     * @param classifier 分类器，将元素映射为分组的Key
+     * @param <T> 输入流的元素类型泛型
+     * @return 搜集器对象
+     * @see #toConcurrentIntMap
+     */
+    public static <T> Collector<T, ?, IntObjectHashMap<List<T>>> groupingByIntConcurrent(
+            ToIntFunction<? super T> classifier) {
+        return groupingByIntConcurrent(classifier, toList());
+    }
+
+    /**
+     * {@link #groupingByInt(ToIntFunction, Collector)}的并发版本，用于并行流
+     * <p>与{@link Collectors#groupingByConcurrent}相同，组内元素的累积在持有该组所在分段的锁时进行，
+     * 所以downstream不需要是线程安全的。</p>
+     *
+     * @param classifier 分类器，将元素映射为分组的Key
+     * @param downstream 每组组内元素的搜集器
+     * @param <T> 输入流的元素类型泛型
+     * @param <A> 每组元素的累积类型泛型
+     * @param <D> 组内聚合结果的泛型
+     * @return 搜集器对象
+     * @see #toConcurrentIntMap
+     */
+    public static <T, A, D> Collector<T, ?, IntObjectHashMap<D>> groupingByIntConcurrent(
+            ToIntFunction<? super T> classifier, Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        BiConsumer<Striped<IntObjectHashMap<A>>, T> accumulator = (striped, t) -> {
+            int key = classifier.applyAsInt(t);
+            IntObjectHashMap<A> stripe = striped.stripe(key);
+            synchronized (stripe) {
+                int index = stripe.indexOf(key);
+                A container;
+                if (index >= 0) {
+                    container = stripe.indexGet(index);
+                } else {
+                    container = downstreamSupplier.get();
+                    stripe.indexInsert(index, key, container);
+                }
+                downstreamAccumulator.accept(container, t);
+            }
+        };
+        Function<Striped<IntObjectHashMap<A>>, IntObjectHashMap<D>> finisher = striped -> {
+            IntObjectHashMap<D> result = new IntObjectHashMap<>(striped.sum(IntObjectHashMap::size));
+            striped.forEach(stripe -> {
+                for (IntObjectCursor<A> cursor : stripe) {
+                    result.put(cursor.key, downstreamFinisher.apply(cursor.value));
+                }
+            });
+            return result;
+        };
+        return new CollectorImpl<>(() -> new Striped<>(IntObjectHashMap::new), accumulator,
+                Striped.merger((m1, m2) -> {
+                    for (IntObjectCursor<A> cursor : m2) {
+                        int index = m1.indexOf(cursor.key);
+                        if (index >= 0) {
+                            m1.indexReplace(index, downstreamCombiner.apply(m1.indexGet(index), cursor.value));
+                        } else {
+                            m1.indexInsert(index, cursor.key, cursor.value);
+                        }
+                    }
+                }), finisher, CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * 将{@link IntStream}搜集为int类型的列表，全程不装箱
+     * <p>{@link IntStream}不支持{@link Collector}，这里直接使用
+     * {@link IntStream#collect(Supplier, java.util.function.ObjIntConsumer, BiConsumer)}。</p>
+     *
+     * @param stream 输入流
+     * @return 搜集结果
+     */
+    public static IntArrayList toIntList(IntStream stream) {
+        return stream.collect(IntArrayList::new, IntArrayList::add, IntArrayList::addAll);
+    }
+
+    /**
+     * 将{@link LongStream}搜集为long类型的列表，全程不装箱
+     *
+     * @param stream 输入流
+     * @return 搜集结果
+     */
+    public static LongArrayList toLongList(LongStream stream) {
+        return stream.collect(LongArrayList::new, LongArrayList::add, LongArrayList::addAll);
+    }
+
+    /**
+     * 将{@link IntStream}搜集为int类型的集合，全程不装箱
+     *
+     * @param stream 输入流
+     * @return 搜集结果
+     */
+    public static IntHashSet toIntSet(IntStream stream) {
+        return stream.collect(IntHashSet::new, IntHashSet::add, IntHashSet::addAll);
+    }
+
+    /**
+     * 将{@link LongStream}搜集为long类型的集合，全程不装箱
+     *
+     * @param stream 输入流
+     * @return 搜集结果
+     */
+    public static LongHashSet toLongSet(LongStream stream) {
+        return stream.collect(LongHashSet::new, LongHashSet::add, LongHashSet::addAll);
+    }
+
+    /**
+     * 统计{@link IntStream}中每个值出现的次数，全程不装箱
+     *
+     * @param stream 输入流
+     * @return 值到出现次数的映射
+     */
+    public static IntIntHashMap toIntCounts(IntStream stream) {
+        return stream.collect(IntIntHashMap::new, (map, value) -> map.addTo(value, 1), (m1, m2) -> {
+            for (IntIntCursor cursor : m2) {
+                m1.addTo(cursor.key, cursor.value);
+            }
+        });
+    }
+
+    /**
+     * 统计{@link LongStream}中每个值出现的次数，全程不装箱
+     *
+     * @param stream 输入流
+     * @return 值到出现次数的映射
+     */
+    public static LongIntHashMap toLongCounts(LongStream stream) {
+        return stream.collect(LongIntHashMap::new, (map, value) -> map.addTo(value, 1), (m1, m2) -> {
+            for (LongIntCursor cursor : m2) {
+                m1.addTo(cursor.key, cursor.value);
+            }
+        });
+    }
+
     /**
      * 将{@link Entry}的Stream转换为{@link Map}类型的搜集器
      *
@@ -380,6 +738,64 @@ public final class MoreCollectors {
         return concat(of(element));
     }
 
+    /**
+     * 并发搜集器使用的分段容器，每段是一个非线程安全的容器，按Key的hash选择分段，访问时对该段加锁
+     * <p>相同的Key总是落在相同的分段，所以结束时各段的Key互不重叠。</p>
+     *
+     * @param <M> 每段的容器类型
+     */
+    private static final class Striped<M> {
+
+        private static final int STRIPES = IntMath
+                .ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+
+        private final Object[] stripes = new Object[STRIPES];
+
+        private Striped(Supplier<M> factory) {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = factory.get();
+            }
+        }
+
+        /**
+         * 对hash再做一次混淆，避免连续的int Key集中在少数分段
+         */
+        M stripe(int hash) {
+            return get(BitMixer.mix32(hash) & (stripes.length - 1));
+        }
+
+        @SuppressWarnings("unchecked")
+        M get(int index) {
+            return (M) stripes[index];
+        }
+
+        void forEach(Consumer<M> action) {
+            for (int i = 0; i < stripes.length; i++) {
+                action.accept(get(i));
+            }
+        }
+
+        int sum(ToIntFunction<M> function) {
+            int sum = 0;
+            for (int i = 0; i < stripes.length; i++) {
+                sum += function.applyAsInt(get(i));
+            }
+            return sum;
+        }
+
+        /**
+         * 非并发执行时（例如顺序流或者不满足{@link Collector.Characteristics#UNORDERED}的场景）用于合并两个分段容器
+         */
+        static <M> BinaryOperator<Striped<M>> merger(BiConsumer<M, M> stripeMerger) {
+            return (s1, s2) -> {
+                for (int i = 0; i < s1.stripes.length; i++) {
+                    stripeMerger.accept(s1.get(i), s2.get(i));
+                }
+                return s1;
+            };
+        }
+    }
+
     /**
      * {@code Collector}的简单实现，允许在外部传入一个Collector的各个函数部分
      *
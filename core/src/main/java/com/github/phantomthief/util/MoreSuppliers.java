@@ -1,21 +1,41 @@
 package com.github.phantomthief.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
 import static java.lang.System.nanoTime;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.Serializable;
 import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * MoreSuppliers增强工具
  * <p>{@link Supplier}的增强函数，使{@link Supplier}执行的执行结果被缓存，真正的调用只执行一次。</p>
@@ -24,6 +44,21 @@ import javax.annotation.Nullable;
  */
 public final class MoreSuppliers {
 
+    private static final Logger logger = getLogger(MoreSuppliers.class);
+
+    private static final int SHARED_EXECUTOR_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int SHARED_EXECUTOR_QUEUE_SIZE = 4096;
+
+    private static final CloseableSupplier<Executor> SHARED_EXECUTOR = lazy(() -> {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_EXECUTOR_THREADS, SHARED_EXECUTOR_THREADS,
+                1, MINUTES, new LinkedBlockingQueue<>(SHARED_EXECUTOR_QUEUE_SIZE), new ThreadFactoryBuilder()
+                        .setNameFormat("more-suppliers-async-%d")
+                        .setDaemon(true)
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    });
+
     /**
      * 提供器懒加载工具
      * <p>增强{@link Supplier}，首次获取值时通过{@link Supplier}加载值，并缓存这个值，在后续获取时直接返回这个缓存的值。</p>
@@ -53,6 +88,84 @@ public final class MoreSuppliers {
         }
     }
 
+    /**
+     * int类型的提供器懒加载工具，读取时不会重复装箱
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     * @see MoreSuppliers#lazy(java.util.function.Supplier)
+     */
+    public static LazyIntSupplier lazyInt(IntSupplier delegate) {
+        return lazyInt(delegate, true);
+    }
+
+    /**
+     * int类型的提供器懒加载工具，支持指定是否释放缓存的值
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @param resetAfterClose 在关闭提供器后，是否释放缓存的值
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     */
+    public static LazyIntSupplier lazyInt(IntSupplier delegate, boolean resetAfterClose) {
+        if (delegate instanceof LazyIntSupplier) {
+            return (LazyIntSupplier) delegate;
+        } else {
+            return new LazyIntSupplier(checkNotNull(delegate), resetAfterClose);
+        }
+    }
+
+    /**
+     * long类型的提供器懒加载工具，读取时不会重复装箱
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     * @see MoreSuppliers#lazy(java.util.function.Supplier)
+     */
+    public static LazyLongSupplier lazyLong(LongSupplier delegate) {
+        return lazyLong(delegate, true);
+    }
+
+    /**
+     * long类型的提供器懒加载工具，支持指定是否释放缓存的值
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @param resetAfterClose 在关闭提供器后，是否释放缓存的值
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     */
+    public static LazyLongSupplier lazyLong(LongSupplier delegate, boolean resetAfterClose) {
+        if (delegate instanceof LazyLongSupplier) {
+            return (LazyLongSupplier) delegate;
+        } else {
+            return new LazyLongSupplier(checkNotNull(delegate), resetAfterClose);
+        }
+    }
+
+    /**
+     * double类型的提供器懒加载工具，读取时不会重复装箱
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     * @see MoreSuppliers#lazy(java.util.function.Supplier)
+     */
+    public static LazyDoubleSupplier lazyDouble(DoubleSupplier delegate) {
+        return lazyDouble(delegate, true);
+    }
+
+    /**
+     * double类型的提供器懒加载工具，支持指定是否释放缓存的值
+     *
+     * @param delegate 原始提供器，用于提供值的首次加载，不能为空
+     * @param resetAfterClose 在关闭提供器后，是否释放缓存的值
+     * @return 返回一个懒加载的提供器，与原提供器兼容
+     */
+    public static LazyDoubleSupplier lazyDouble(DoubleSupplier delegate, boolean resetAfterClose) {
+        if (delegate instanceof LazyDoubleSupplier) {
+            return (LazyDoubleSupplier) delegate;
+        } else {
+            return new LazyDoubleSupplier(checkNotNull(delegate), resetAfterClose);
+        }
+    }
+
     /**
      * 提供器懒加载工具，支持异常类型声明
      *
@@ -96,7 +209,7 @@ public final class MoreSuppliers {
     @Deprecated
     public static <T> Supplier<T> asyncLazy(Supplier<T> delegate, Supplier<T> pendingSupplier,
             String threadName) {
-        return new AsyncSupplier<>(delegate, pendingSupplier, threadName);
+        return new AsyncSupplier<>(delegate, pendingSupplier, threadExecutor(threadName));
     }
 
     /**
@@ -137,7 +250,33 @@ public final class MoreSuppliers {
      */
     public static <T> AsyncSupplier<T> asyncLazyEx(Supplier<T> delegate, Supplier<T> pendingSupplier,
             String threadName) {
-        return new AsyncSupplier<>(delegate, pendingSupplier, threadName);
+        return new AsyncSupplier<>(delegate, pendingSupplier, threadExecutor(threadName));
+    }
+
+    /**
+     * 使用指定执行器异步加载的提供器懒加载工具
+     *
+     * @param delegate 原始{@link Supplier}对象，用于提供值的首次加载，不能为空
+     * @param pendingSupplier 当超过指定的时间没有获取初始值成功时，使用此提供器提供的值作为托底。此值不会缓存，不影响下次获取时再次尝试初始化
+     * @param executor 用于异步初始化的执行器
+     * @param <T> 提供值的泛型类型
+     * @return 返回一个懒加载的提供器，可通过{@link AsyncSupplier#getFuture()}获取正在进行的加载
+     */
+    public static <T> AsyncSupplier<T> asyncLazyEx(Supplier<T> delegate, Supplier<T> pendingSupplier,
+            Executor executor) {
+        return new AsyncSupplier<>(delegate, pendingSupplier, executor);
+    }
+
+    /**
+     * 使用指定执行器异步加载的提供器懒加载工具
+     *
+     * @param delegate 原始{@link Supplier}对象，用于提供值的首次加载，不能为空
+     * @param executor 用于异步初始化的执行器
+     * @param <T> 提供值的泛型类型
+     * @return 返回一个懒加载的提供器，可通过{@link AsyncSupplier#getFuture()}获取正在进行的加载
+     */
+    public static <T> AsyncSupplier<T> asyncLazyEx(Supplier<T> delegate, Executor executor) {
+        return asyncLazyEx(delegate, () -> null, executor);
     }
 
     /**
@@ -153,14 +292,46 @@ public final class MoreSuppliers {
     }
 
     /**
-     * 使用异步线程加载的提供器懒加载工具
+     * 使用共享的有界线程池异步加载的提供器懒加载工具
      *
      * @param delegate 原始{@link Supplier}对象，用于提供值的首次加载，不能为空
      * @param <T> 提供值的泛型类型
      * @return 返回一个懒加载的提供器，可通过{@link AsyncSupplier#get(java.time.Duration)}方法实现获取超时
      */
     public static <T> AsyncSupplier<T> asyncLazyEx(Supplier<T> delegate) {
-        return asyncLazyEx(delegate, null);
+        return asyncLazyEx(delegate, sharedExecutor());
+    }
+
+    /**
+     * 异步加载共享的有界线程池，线程空闲后自动回收，避免每个异步加载的提供器都创建一个线程
+     */
+    static Executor sharedExecutor() {
+        return SHARED_EXECUTOR.get();
+    }
+
+    /**
+     * @param threadName 为null时使用{@link #sharedExecutor()}
+     */
+    private static Executor threadExecutor(@Nullable String threadName) {
+        if (threadName == null) {
+            return sharedExecutor();
+        }
+        return command -> new Thread(command, threadName).start();
+    }
+
+    /**
+     * 带过期时间的提供器，过期前的一段时间内（默认为有效期的1/5）被访问时在后台刷新，刷新期间继续返回旧值
+     * <p>需要定制刷新时间、失败退避、执行器时，请使用{@link RefreshingSupplier#newBuilder()}</p>
+     *
+     * @param delegate 原始{@link Supplier}对象，用于加载值，不能为空
+     * @param expireAfter 值加载之后的有效期
+     * @param <T> 提供值的泛型类型
+     * @return 返回一个定期刷新的提供器，与原提供器兼容
+     */
+    public static <T> RefreshingSupplier<T> refreshing(Supplier<T> delegate, Duration expireAfter) {
+        return RefreshingSupplier.newBuilder()
+                .expireAfter(expireAfter)
+                .build(delegate);
     }
 
     /**
@@ -469,9 +640,9 @@ public final class MoreSuppliers {
     public static final class AsyncSupplier<T> implements Supplier<T> {
 
         /**
-         * 执行初始化操作的线程名称
+         * 执行初始化操作的执行器
          */
-        private final String initThreadName;
+        private final Executor initExecutor;
 
         /**
          * 原始{@link Supplier}对象，用于提供值的首次加载
@@ -504,20 +675,19 @@ public final class MoreSuppliers {
         private volatile long firstInitNano;
 
         /**
-         * 用于初始化线程工作状态同步的信号量
+         * 最近一次初始化的结果，初始化失败后再次调用时会重新创建
          */
-        private volatile CountDownLatch latch;
+        private volatile SettableFuture<T> future;
 
         /**
          * 构造方法：创建AsyncSupplier对象
          *
          * @param innerSupplier 原始{@link ThrowableSupplier}对象，用于提供值的首次加载
          * @param pendingSupplier 托底的{@link Supplier}对象，当异步初始化值超时时，通过此提供器获取返回值，此提供器的返回值不会被缓存
-         * @param initThreadName 执行初始化操作的线程名称
+         * @param initExecutor 执行初始化操作的执行器
          */
-        AsyncSupplier(Supplier<T> innerSupplier, Supplier<T> pendingSupplier,
-                String initThreadName) {
-            this.initThreadName = initThreadName;
+        AsyncSupplier(Supplier<T> innerSupplier, Supplier<T> pendingSupplier, Executor initExecutor) {
+            this.initExecutor = checkNotNull(initExecutor);
             this.innerSupplier = checkNotNull(innerSupplier);
             this.pendingSupplier = checkNotNull(pendingSupplier);
         }
@@ -534,54 +704,59 @@ public final class MoreSuppliers {
             if (inited) {
                 return value;
             }
-            if (initing) {
-                tryWait(timeoutFromFirstIniting);
-                if (inited) {
-                    return value;
-                }
-                return pendingSupplier.get();
+            if (!initing) {
+                startInit();
             }
-            synchronized (this) {
-                if (inited) {
-                    return value;
-                }
-                if (initing) {
-                    tryWait(timeoutFromFirstIniting);
-                    if (inited) {
-                        return value;
-                    }
-                    return pendingSupplier.get();
-                }
-                // start init
-                firstInitNano = nanoTime();
-                latch = new CountDownLatch(1);
-                initing = true;
-                Runnable initWithTry = () -> {
+            if (inited) {
+                return value;
+            }
+            tryWait(timeoutFromFirstIniting);
+            if (inited) {
+                return value;
+            }
+            return pendingSupplier.get();
+        }
+
+        /**
+         * 返回正在进行的（或者已经完成的）初始化，如果还没有开始初始化，则开始初始化
+         * <p>初始化失败时返回的{@link ListenableFuture}以原始异常失败，之后再次调用本方法或者{@link #get()}会重新开始初始化</p>
+         *
+         * @return 初始化结果
+         */
+        @Nonnull
+        public ListenableFuture<T> getFuture() {
+            if (!inited && !initing) {
+                startInit();
+            }
+            return future;
+        }
+
+        private synchronized void startInit() {
+            if (inited || initing) {
+                return;
+            }
+            SettableFuture<T> thisFuture = SettableFuture.create();
+            firstInitNano = nanoTime();
+            future = thisFuture;
+            initing = true;
+            try {
+                initExecutor.execute(() -> {
                     try {
-                        value = innerSupplier.get();
+                        T t = innerSupplier.get();
+                        value = t;
                         inited = true;
                         initing = false;
+                        thisFuture.set(t);
                     } catch (Throwable e) {
                         initing = false;
-                        throw e;
-                    } finally {
-                        latch.countDown();
+                        thisFuture.setException(e);
+                        logger.error("fail to init async supplier:{}", innerSupplier, e);
                     }
-                };
-                if (initThreadName == null) {
-                    new Thread(initWithTry).start();
-                } else {
-                    new Thread(initWithTry, initThreadName).start();
-                }
-            }
-            if (inited) {
-                return value;
-            } else {
-                tryWait(timeoutFromFirstIniting);
-                if (inited) {
-                    return value;
-                }
-                return pendingSupplier.get();
+                });
+            } catch (RejectedExecutionException e) {
+                initing = false;
+                thisFuture.setException(e);
+                logger.error("fail to submit init task of async supplier:{}", innerSupplier, e);
             }
         }
 
@@ -608,7 +783,175 @@ public final class MoreSuppliers {
             long maxWaitDuration = maxWaitFromFirstCall.toNanos();
             long needWaitDuration = maxWaitDuration - passedDuration;
             if (needWaitDuration > 0) {
-                awaitUninterruptibly(latch, needWaitDuration, NANOSECONDS);
+                try {
+                    getUninterruptibly(future, needWaitDuration, NANOSECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    // 由调用方返回托底值
+                }
+            }
+        }
+    }
+
+    /**
+     * 基本类型的懒加载提供器的公共实现
+     * <p>加载的值装箱后通过一个volatile字段发布，装箱对象不可变，读取时不会读到写了一半的long/double（JLS 17.7），
+     * 也不会在每次读取时重新装箱。</p>
+     * <p>关闭语义与{@link CloseableSupplier}一致：{@link #tryClose()}之后下次读取时重新加载（如果允许释放）</p>
+     *
+     * @param <T> 基本类型对应的包装类型
+     */
+    public abstract static class LazyPrimitiveSupplier<T> {
+
+        private final Object delegate;
+        private final Supplier<T> loader;
+        private final boolean resetAfterClose;
+        private final String name;
+
+        /**
+         * 为null时表示还没有加载
+         */
+        private volatile T value;
+
+        private LazyPrimitiveSupplier(Object delegate, Supplier<T> loader, boolean resetAfterClose, String name) {
+            this.delegate = delegate;
+            this.loader = loader;
+            this.resetAfterClose = resetAfterClose;
+            this.name = name;
+        }
+
+        final T load() {
+            T v = value;
+            if (v != null) {
+                return v;
+            }
+            synchronized (this) {
+                v = value;
+                if (v == null) {
+                    v = loader.get();
+                    value = v;
+                }
+                return v;
+            }
+        }
+
+        /**
+         * @return 如果已经加载过，返回当前缓存的值，否则返回{@code null}
+         */
+        final T loaded() {
+            return value;
+        }
+
+        public boolean isInitialized() {
+            return value != null;
+        }
+
+        /**
+         * 尝试释放当前缓存的值，是否真正执行释放取决于resetAfterClose属性
+         */
+        public void tryClose() {
+            tryClose(i -> { });
+        }
+
+        /**
+         * 尝试释放当前缓存的值，是否真正执行释放取决于resetAfterClose属性，在释放前执行一个函数以帮助销毁资源等操作
+         *
+         * @param close 关闭函数，只有加载过时才会执行
+         * @param <X> 关闭时产生的异常的泛型
+         * @throws X 关闭时产生的异常
+         */
+        public <X extends Throwable> void tryClose(ThrowableConsumer<T, X> close) throws X {
+            synchronized (this) {
+                T v = value;
+                if (v != null) {
+                    try {
+                        close.accept(v);
+                    } finally {
+                        if (resetAfterClose) {
+                            value = null;
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            T v = value;
+            return "MoreSuppliers." + name + "(" + (v != null ? v : delegate) + ")";
+        }
+    }
+
+    /**
+     * 可关闭的{@link IntSupplier}实现
+     */
+    public static final class LazyIntSupplier extends LazyPrimitiveSupplier<Integer> implements IntSupplier {
+
+        private LazyIntSupplier(IntSupplier delegate, boolean resetAfterClose) {
+            super(delegate, delegate::getAsInt, resetAfterClose, "lazyInt");
+        }
+
+        @Override
+        public int getAsInt() {
+            return load();
+        }
+
+        /**
+         * 如果已经加载过，使用当前缓存的值
+         */
+        public void ifPresent(IntConsumer consumer) {
+            Integer v = loaded();
+            if (v != null) {
+                consumer.accept(v);
+            }
+        }
+    }
+
+    /**
+     * 可关闭的{@link LongSupplier}实现
+     */
+    public static final class LazyLongSupplier extends LazyPrimitiveSupplier<Long> implements LongSupplier {
+
+        private LazyLongSupplier(LongSupplier delegate, boolean resetAfterClose) {
+            super(delegate, delegate::getAsLong, resetAfterClose, "lazyLong");
+        }
+
+        @Override
+        public long getAsLong() {
+            return load();
+        }
+
+        /**
+         * 如果已经加载过，使用当前缓存的值
+         */
+        public void ifPresent(LongConsumer consumer) {
+            Long v = loaded();
+            if (v != null) {
+                consumer.accept(v);
+            }
+        }
+    }
+
+    /**
+     * 可关闭的{@link DoubleSupplier}实现
+     */
+    public static final class LazyDoubleSupplier extends LazyPrimitiveSupplier<Double> implements DoubleSupplier {
+
+        private LazyDoubleSupplier(DoubleSupplier delegate, boolean resetAfterClose) {
+            super(delegate, delegate::getAsDouble, resetAfterClose, "lazyDouble");
+        }
+
+        @Override
+        public double getAsDouble() {
+            return load();
+        }
+
+        /**
+         * 如果已经加载过，使用当前缓存的值
+         */
+        public void ifPresent(DoubleConsumer consumer) {
+            Double v = loaded();
+            if (v != null) {
+                consumer.accept(v);
             }
         }
     }
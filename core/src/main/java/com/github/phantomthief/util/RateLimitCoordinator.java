@@ -0,0 +1,23 @@
+package com.github.phantomthief.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 集群限流的协调者，负责在多个实例之间分配全局的配额，供 {@link ClusterRateLimiter} 批量租用
+ * <p>实现通常基于Redis、数据库或者专门的配额服务；{@link InMemoryRateLimitCoordinator} 为单进程内的实现，用于测试。</p>
+ */
+@ThreadSafe
+@FunctionalInterface
+public interface RateLimitCoordinator {
+
+    /**
+     * 从全局配额中租用一批令牌
+     * <p>本方法在 {@link ClusterRateLimiter} 的后台线程中调用，可以阻塞，抛出的异常会被记录并在下次需要时重试</p>
+     *
+     * @param resource 限流的资源名
+     * @param permits 期望租用的令牌数
+     * @return 实际租到的令牌数，可以少于permits，配额耗尽时为0
+     */
+    int lease(@Nonnull String resource, int permits);
+}
@@ -7,20 +7,19 @@ import static org.slf4j.spi.LocationAwareLogger.INFO_INT;
 import static org.slf4j.spi.LocationAwareLogger.TRACE_INT;
 import static org.slf4j.spi.LocationAwareLogger.WARN_INT;
 
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.Marker;
 import org.slf4j.spi.LocationAwareLogger;
 
-import com.github.phantomthief.tuple.ThreeTuple;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.github.phantomthief.tuple.FourTuple;
 
 /**
  * 使用 {@link SimpleRateLimiter} 来控制打 log 输出的频率，避免出现 log flood 占用过高的 CPU <p>
@@ -54,36 +53,56 @@ public class RateLogger implements Logger {
     private static final String FQCN = RateLogger.class.getName();
 
     private static final double DEFAULT_PERMITS_PER_SECOND = 1;
-    private static final int MAX_PER_FORMAT_CACHE_SIZE = 100;
+    private static final int MAX_PER_FORMAT_SIZE = 8192;
+    static final String PREFIX = "[IGNORED={}]";
+    static final String SUPPLIED_MSG_FORMAT = PREFIX + "{}";
+    private static final int MAX_PREFIXED_FORMATS_SIZE = 4096;
+    // format一般是常量，缓存加上前缀之后的结果，避免每次输出都拼接字符串
+    private static final ConcurrentMap<String, String> PREFIXED_FORMATS = new ConcurrentHashMap<>();
     // 直接使用Map来cache RateLogger。Logger的数量是有限的，LogBack也是使用了Map来Cache，所以没必要用一个支持evict的Cache。
-    private static final ConcurrentMap<ThreeTuple<String, Double, Boolean>, RateLogger> CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<FourTuple<String, Double, Boolean, Boolean>, RateLogger> CACHE = new ConcurrentHashMap<>();
 
     private final Logger logger;
-    private final LocationAwareLogger locationAwareLogger;
+    /**
+     * 不为null时，获得准许的日志都通过它输出，否则直接调用logger的对应方法
+     */
+    private final Emitter emitter;
+    /**
+     * 异步输出时不为null，被限流的日志交给它统计
+     */
+    private final AsyncRateLogDispatcher dispatcher;
 
     private final SimpleRateLimiter rateLimiter;
-    private final LoadingCache<String, SimpleRateLimiter> perFormatStringRateLimiter;
+    private final MessageRateLimiters perFormatStringRateLimiter;
+
+    private final LevelLogger traceLogger = new LevelLogger(TRACE_INT);
+    private final LevelLogger debugLogger = new LevelLogger(DEBUG_INT);
+    private final LevelLogger infoLogger = new LevelLogger(INFO_INT);
+    private final LevelLogger warnLogger = new LevelLogger(WARN_INT);
+    private final LevelLogger errorLogger = new LevelLogger(ERROR_INT);
 
-    private RateLogger(Logger logger, double permitsPerSecond, boolean perFormatString) {
+    private RateLogger(Logger logger, double permitsPerSecond, boolean perFormatString, boolean async) {
         this.logger = logger;
-        if (logger instanceof LocationAwareLogger) {
-            this.locationAwareLogger = (LocationAwareLogger) logger;
+        if (async) {
+            AsyncRateLogDispatcher dispatcher = AsyncRateLogDispatcher.shared();
+            this.dispatcher = dispatcher;
+            this.emitter = (marker, fqcn, level, format, args, t) -> dispatcher.offer(logger, marker, level,
+                    format, args, t);
+        } else if (logger instanceof LocationAwareLogger) {
+            this.dispatcher = null;
+            this.emitter = ((LocationAwareLogger) logger)::log;
         } else {
-            this.locationAwareLogger = null;
+            this.dispatcher = null;
+            this.emitter = null;
         }
+        this.rateLimiter = SimpleRateLimiter.create(permitsPerSecond);
         if (perFormatString) {
-            this.perFormatStringRateLimiter = CacheBuilder.newBuilder()
-                    .maximumSize(MAX_PER_FORMAT_CACHE_SIZE)
-                    .build(new CacheLoader<String, SimpleRateLimiter>() {
-                        @Override
-                        public SimpleRateLimiter load(String s) {
-                            return SimpleRateLimiter.create(permitsPerSecond);
-                        }
-                    });
+            // 消息种类超过上限时，新出现的消息共享整个logger的限流器
+            this.perFormatStringRateLimiter = new MessageRateLimiters(MAX_PER_FORMAT_SIZE,
+                    () -> SimpleRateLimiter.create(permitsPerSecond), rateLimiter);
         } else {
             this.perFormatStringRateLimiter = null;
         }
-        this.rateLimiter = SimpleRateLimiter.create(permitsPerSecond);
     }
 
     /**
@@ -132,13 +151,40 @@ public class RateLogger implements Logger {
      * @param perFormatString 如果为 {@code true}，则按照每个 formatString 为单位而不是整个 logger 为单位执行采样
      */
     private static RateLogger rateLogger(Logger logger, double permitsPer, boolean perFormatString) {
+        return rateLogger(logger, permitsPer, perFormatString, false);
+    }
+
+    /**
+     * 工厂方法，异步模式，获得准许的日志由后台线程输出，请求线程不会阻塞在appender的IO上
+     * <p>后台线程还会每10秒输出一条汇总，列出被限流次数最多的消息；异步输出时无法获取调用方的代码位置。</p>
+     *
+     * @param logger 要封装的logger实例
+     * @param permitsPer 打log的每秒允许个数，例如传入0.2，就意味着五秒打一条log
+     */
+    public static RateLogger asyncRateLogger(Logger logger, double permitsPer) {
+        return rateLogger(logger, permitsPer, false, true);
+    }
+
+    /**
+     * 工厂方法，异步模式，和 {@link #asyncRateLogger} 的区别是，会按照不同的 msg 分别采样计算
+     *
+     * @param logger 要封装的logger实例
+     * @param permitsPer 打log的每秒允许个数，例如传入0.2，就意味着五秒打一条log
+     */
+    public static RateLogger asyncPerMessageRateLogger(Logger logger, double permitsPer) {
+        return rateLogger(logger, permitsPer, true, true);
+    }
+
+    private static RateLogger rateLogger(Logger logger, double permitsPer, boolean perFormatString,
+            boolean async) {
         String name = logger.getName();
-        ThreeTuple<String, Double, Boolean> key = tuple(name, permitsPer, perFormatString);
+        FourTuple<String, Double, Boolean, Boolean> key = tuple(name, permitsPer, perFormatString, async);
         RateLogger rateLogger = CACHE.get(key);
         if (rateLogger != null) {
             return rateLogger;
         }
-        return CACHE.computeIfAbsent(key, it -> new RateLogger(logger, it.getSecond(), it.getThird()));
+        return CACHE.computeIfAbsent(key, it -> new RateLogger(logger, it.getSecond(), it.getThird(),
+                it.getFourth()));
     }
 
     private SimpleRateLimiter getLimiter(@Nullable String msg) {
@@ -148,33 +194,96 @@ public class RateLogger implements Logger {
             if (msg == null) {
                 return rateLimiter;
             } else {
-                return perFormatStringRateLimiter.getUnchecked(msg);
+                return perFormatStringRateLimiter.get(msg);
             }
         }
     }
 
+    private boolean tryAcquire(SimpleRateLimiter limiter, @Nullable String msg) {
+        if (limiter.tryAcquire()) {
+            return true;
+        }
+        if (dispatcher != null) {
+            dispatcher.suppressed(logger, msg);
+        }
+        return false;
+    }
+
     @Override
     public String getName() {
         return logger.getName();
     }
 
-    private String msg(String msg) {
-        return "[IGNORED={}]" + msg;
+    /**
+     * 延迟计算参数的trace级别日志，用法见 {@link LevelLogger}
+     */
+    public LevelLogger atTrace() {
+        return traceLogger;
+    }
+
+    /**
+     * 延迟计算参数的debug级别日志，用法见 {@link LevelLogger}
+     */
+    public LevelLogger atDebug() {
+        return debugLogger;
+    }
+
+    /**
+     * 延迟计算参数的info级别日志，用法见 {@link LevelLogger}
+     */
+    public LevelLogger atInfo() {
+        return infoLogger;
+    }
+
+    /**
+     * 延迟计算参数的warn级别日志，用法见 {@link LevelLogger}
+     */
+    public LevelLogger atWarn() {
+        return warnLogger;
+    }
+
+    /**
+     * 延迟计算参数的error级别日志，用法见 {@link LevelLogger}
+     */
+    public LevelLogger atError() {
+        return errorLogger;
+    }
+
+    private static String msg(String msg) {
+        if (msg == null) {
+            return PREFIX + msg;
+        }
+        String result = PREFIXED_FORMATS.get(msg);
+        if (result == null) {
+            result = PREFIX + msg;
+            if (PREFIXED_FORMATS.size() < MAX_PREFIXED_FORMATS_SIZE) {
+                PREFIXED_FORMATS.putIfAbsent(msg, result);
+            }
+        }
+        return result;
     }
 
-    private Object[] args(SimpleRateLimiter limiter, Object[] args) {
-        Object[] result;
+    /**
+     * 传给logger的参数数组不能复用，有的appender（例如异步appender）会在调用返回后才使用参数，
+     * 所以这里只保证每条实际输出的日志只分配一个大小刚好的数组
+     */
+    private static Object[] args(SimpleRateLimiter limiter, Object[] args) {
         long skip = limiter.getSkipCountAndClear();
-        if (args == null) {
-            result = new Object[] {skip};
-        } else {
-            result = ArrayUtils.addAll(new Object[] {skip}, args);
+        if (args == null || args.length == 0) {
+            return new Object[] {skip};
         }
+        Object[] result = new Object[args.length + 1];
+        result[0] = skip;
+        System.arraycopy(args, 0, result, 1, args.length);
         return result;
     }
 
-    private Object[] args(SimpleRateLimiter limiter, Object arg) {
-        return args(limiter, new Object[] {arg});
+    private static Object[] args(SimpleRateLimiter limiter, Object arg) {
+        return new Object[] {limiter.getSkipCountAndClear(), arg};
+    }
+
+    private static Object[] args(SimpleRateLimiter limiter, Object arg1, Object arg2) {
+        return new Object[] {limiter.getSkipCountAndClear(), arg1, arg2};
     }
 
     @Override
@@ -186,9 +295,9 @@ public class RateLogger implements Logger {
     public void trace(String msg) {
         if (isTraceEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, TRACE_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, TRACE_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.trace(msg(msg), args(limiter, null));
                 }
@@ -200,9 +309,9 @@ public class RateLogger implements Logger {
     public void trace(String format, Object arg) {
         if (isTraceEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, TRACE_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, TRACE_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.trace(msg(format), args(limiter, arg));
                 }
@@ -214,11 +323,11 @@ public class RateLogger implements Logger {
     public void trace(String format, Object arg1, Object arg2) {
         if (isTraceEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, TRACE_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, TRACE_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.trace(msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.trace(msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -228,9 +337,9 @@ public class RateLogger implements Logger {
     public void trace(String format, Object... arguments) {
         if (isTraceEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, TRACE_INT, msg(format), args(limiter, arguments), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, TRACE_INT, msg(format), args(limiter, arguments), null);
                 } else {
                     logger.trace(msg(format), args(limiter, arguments));
                 }
@@ -242,9 +351,9 @@ public class RateLogger implements Logger {
     public void trace(String msg, Throwable t) {
         if (isTraceEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, TRACE_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, TRACE_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.trace(msg(msg), args(limiter, t));
                 }
@@ -261,9 +370,9 @@ public class RateLogger implements Logger {
     public void trace(Marker marker, String msg) {
         if (isTraceEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, TRACE_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, TRACE_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.trace(marker, msg(msg), args(limiter, null));
                 }
@@ -275,9 +384,9 @@ public class RateLogger implements Logger {
     public void trace(Marker marker, String format, Object arg) {
         if (isTraceEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.trace(marker, msg(format), args(limiter, arg));
                 }
@@ -289,11 +398,11 @@ public class RateLogger implements Logger {
     public void trace(Marker marker, String format, Object arg1, Object arg2) {
         if (isTraceEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.trace(marker, msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.trace(marker, msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -303,9 +412,9 @@ public class RateLogger implements Logger {
     public void trace(Marker marker, String format, Object... argArray) {
         if (isTraceEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, argArray), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, TRACE_INT, msg(format), args(limiter, argArray), null);
                 } else {
                     logger.trace(marker, msg(format), args(limiter, argArray));
                 }
@@ -317,9 +426,9 @@ public class RateLogger implements Logger {
     public void trace(Marker marker, String msg, Throwable t) {
         if (isTraceEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, TRACE_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, TRACE_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.trace(marker, msg(msg), args(limiter, t));
                 }
@@ -336,9 +445,9 @@ public class RateLogger implements Logger {
     public void debug(String msg) {
         if (isDebugEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, DEBUG_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, DEBUG_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.debug(msg(msg), args(limiter, null));
                 }
@@ -350,9 +459,9 @@ public class RateLogger implements Logger {
     public void debug(String format, Object arg) {
         if (isDebugEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.debug(msg(format), args(limiter, arg));
                 }
@@ -364,11 +473,11 @@ public class RateLogger implements Logger {
     public void debug(String format, Object arg1, Object arg2) {
         if (isDebugEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.debug(msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.debug(msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -378,9 +487,9 @@ public class RateLogger implements Logger {
     public void debug(String format, Object... arguments) {
         if (isDebugEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, arguments), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, DEBUG_INT, msg(format), args(limiter, arguments), null);
                 } else {
                     logger.debug(msg(format), args(limiter, arguments));
                 }
@@ -392,9 +501,9 @@ public class RateLogger implements Logger {
     public void debug(String msg, Throwable t) {
         if (isDebugEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, DEBUG_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, DEBUG_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.debug(msg(msg), args(limiter, t));
                 }
@@ -411,9 +520,9 @@ public class RateLogger implements Logger {
     public void debug(Marker marker, String msg) {
         if (isDebugEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, DEBUG_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, DEBUG_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.debug(marker, msg(msg), args(limiter, null));
                 }
@@ -425,9 +534,9 @@ public class RateLogger implements Logger {
     public void debug(Marker marker, String format, Object arg) {
         if (isDebugEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.debug(marker, msg(format), args(limiter, arg));
                 }
@@ -439,11 +548,11 @@ public class RateLogger implements Logger {
     public void debug(Marker marker, String format, Object arg1, Object arg2) {
         if (isDebugEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.debug(marker, msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.debug(marker, msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -453,9 +562,9 @@ public class RateLogger implements Logger {
     public void debug(Marker marker, String format, Object... argArray) {
         if (isDebugEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, argArray), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, DEBUG_INT, msg(format), args(limiter, argArray), null);
                 } else {
                     logger.debug(marker, msg(format), args(limiter, argArray));
                 }
@@ -467,9 +576,9 @@ public class RateLogger implements Logger {
     public void debug(Marker marker, String msg, Throwable t) {
         if (isDebugEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, DEBUG_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, DEBUG_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.debug(marker, msg(msg), args(limiter, t));
                 }
@@ -486,9 +595,9 @@ public class RateLogger implements Logger {
     public void info(String msg) {
         if (isInfoEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, INFO_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, INFO_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.info(msg(msg), args(limiter, null));
                 }
@@ -500,9 +609,9 @@ public class RateLogger implements Logger {
     public void info(String format, Object arg) {
         if (isInfoEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, INFO_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, INFO_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.info(msg(format), args(limiter, arg));
                 }
@@ -514,11 +623,11 @@ public class RateLogger implements Logger {
     public void info(String format, Object arg1, Object arg2) {
         if (isInfoEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, INFO_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, INFO_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.info(msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.info(msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -528,9 +637,9 @@ public class RateLogger implements Logger {
     public void info(String format, Object... arguments) {
         if (isInfoEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, INFO_INT, msg(format), args(limiter, arguments), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, INFO_INT, msg(format), args(limiter, arguments), null);
                 } else {
                     logger.info(msg(format), args(limiter, arguments));
                 }
@@ -542,9 +651,9 @@ public class RateLogger implements Logger {
     public void info(String msg, Throwable t) {
         if (isInfoEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, INFO_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, INFO_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.info(msg(msg), args(limiter, t));
                 }
@@ -561,9 +670,9 @@ public class RateLogger implements Logger {
     public void info(Marker marker, String msg) {
         if (isInfoEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, INFO_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, INFO_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.info(marker, msg(msg), args(limiter, null));
                 }
@@ -575,9 +684,9 @@ public class RateLogger implements Logger {
     public void info(Marker marker, String format, Object arg) {
         if (isInfoEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, INFO_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, INFO_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.info(marker, msg(format), args(limiter, arg));
                 }
@@ -589,11 +698,11 @@ public class RateLogger implements Logger {
     public void info(Marker marker, String format, Object arg1, Object arg2) {
         if (isInfoEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, INFO_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, INFO_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.info(marker, msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.info(marker, msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -603,9 +712,9 @@ public class RateLogger implements Logger {
     public void info(Marker marker, String format, Object... argArray) {
         if (isInfoEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, INFO_INT, msg(format), args(limiter, argArray), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, INFO_INT, msg(format), args(limiter, argArray), null);
                 } else {
                     logger.info(marker, msg(format), args(limiter, argArray));
                 }
@@ -617,9 +726,9 @@ public class RateLogger implements Logger {
     public void info(Marker marker, String msg, Throwable t) {
         if (isInfoEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, INFO_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, INFO_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.info(marker, msg(msg), args(limiter, t));
                 }
@@ -636,9 +745,9 @@ public class RateLogger implements Logger {
     public void warn(String msg) {
         if (isWarnEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, WARN_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, WARN_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.warn(msg(msg), args(limiter, null));
                 }
@@ -650,9 +759,9 @@ public class RateLogger implements Logger {
     public void warn(String format, Object arg) {
         if (isWarnEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, WARN_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, WARN_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.warn(msg(format), args(limiter, arg));
                 }
@@ -664,11 +773,11 @@ public class RateLogger implements Logger {
     public void warn(String format, Object arg1, Object arg2) {
         if (isWarnEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, WARN_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, WARN_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.warn(msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.warn(msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -678,9 +787,9 @@ public class RateLogger implements Logger {
     public void warn(String format, Object... arguments) {
         if (isWarnEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, WARN_INT, msg(format), args(limiter, arguments), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, WARN_INT, msg(format), args(limiter, arguments), null);
                 } else {
                     logger.warn(msg(format), args(limiter, arguments));
                 }
@@ -692,9 +801,9 @@ public class RateLogger implements Logger {
     public void warn(String msg, Throwable t) {
         if (isWarnEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, WARN_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, WARN_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.warn(msg(msg), args(limiter, t));
                 }
@@ -711,9 +820,9 @@ public class RateLogger implements Logger {
     public void warn(Marker marker, String msg) {
         if (isWarnEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, WARN_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, WARN_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.warn(marker, msg(msg), args(limiter, null));
                 }
@@ -725,9 +834,9 @@ public class RateLogger implements Logger {
     public void warn(Marker marker, String format, Object arg) {
         if (isWarnEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, WARN_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, WARN_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.warn(marker, msg(format), args(limiter, arg));
                 }
@@ -739,11 +848,11 @@ public class RateLogger implements Logger {
     public void warn(Marker marker, String format, Object arg1, Object arg2) {
         if (isWarnEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, WARN_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, WARN_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.warn(marker, msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.warn(marker, msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -753,9 +862,9 @@ public class RateLogger implements Logger {
     public void warn(Marker marker, String format, Object... argArray) {
         if (isWarnEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, WARN_INT, msg(format), args(limiter, argArray), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, WARN_INT, msg(format), args(limiter, argArray), null);
                 } else {
                     logger.warn(marker, msg(format), args(limiter, argArray));
                 }
@@ -767,9 +876,9 @@ public class RateLogger implements Logger {
     public void warn(Marker marker, String msg, Throwable t) {
         if (isWarnEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, WARN_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, WARN_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.warn(marker, msg(msg), args(limiter, t));
                 }
@@ -786,9 +895,9 @@ public class RateLogger implements Logger {
     public void error(String msg) {
         if (isErrorEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, ERROR_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, ERROR_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.error(msg(msg), args(limiter, null));
                 }
@@ -800,9 +909,9 @@ public class RateLogger implements Logger {
     public void error(String format, Object arg) {
         if (isErrorEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, ERROR_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, ERROR_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.error(msg(format), args(limiter, arg));
                 }
@@ -814,11 +923,11 @@ public class RateLogger implements Logger {
     public void error(String format, Object arg1, Object arg2) {
         if (isErrorEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, ERROR_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, ERROR_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.error(msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.error(msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -828,9 +937,9 @@ public class RateLogger implements Logger {
     public void error(String format, Object... arguments) {
         if (isErrorEnabled()) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, ERROR_INT, msg(format), args(limiter, arguments), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, ERROR_INT, msg(format), args(limiter, arguments), null);
                 } else {
                     logger.error(msg(format), args(limiter, arguments));
                 }
@@ -842,9 +951,9 @@ public class RateLogger implements Logger {
     public void error(String msg, Throwable t) {
         if (isErrorEnabled()) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(null, FQCN, ERROR_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(null, FQCN, ERROR_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.error(msg(msg), args(limiter, t));
                 }
@@ -861,9 +970,9 @@ public class RateLogger implements Logger {
     public void error(Marker marker, String msg) {
         if (isErrorEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, ERROR_INT, msg(msg), args(limiter, null), null);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, ERROR_INT, msg(msg), args(limiter, null), null);
                 } else {
                     logger.error(marker, msg(msg), args(limiter, null));
                 }
@@ -875,9 +984,9 @@ public class RateLogger implements Logger {
     public void error(Marker marker, String format, Object arg) {
         if (isErrorEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, arg), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, arg), null);
                 } else {
                     logger.error(marker, msg(format), args(limiter, arg));
                 }
@@ -889,11 +998,11 @@ public class RateLogger implements Logger {
     public void error(Marker marker, String format, Object arg1, Object arg2) {
         if (isErrorEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, new Object[] {arg1, arg2}), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, arg1, arg2), null);
                 } else {
-                    logger.error(marker, msg(format), args(limiter, new Object[] {arg1, arg2}));
+                    logger.error(marker, msg(format), args(limiter, arg1, arg2));
                 }
             }
         }
@@ -903,9 +1012,9 @@ public class RateLogger implements Logger {
     public void error(Marker marker, String format, Object... argArray) {
         if (isErrorEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(format);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, argArray), null);
+            if (tryAcquire(limiter, format)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, ERROR_INT, msg(format), args(limiter, argArray), null);
                 } else {
                     logger.error(marker, msg(format), args(limiter, argArray));
                 }
@@ -917,13 +1026,128 @@ public class RateLogger implements Logger {
     public void error(Marker marker, String msg, Throwable t) {
         if (isErrorEnabled(marker)) {
             SimpleRateLimiter limiter = getLimiter(msg);
-            if (limiter.tryAcquire()) {
-                if (locationAwareLogger != null) {
-                    locationAwareLogger.log(marker, FQCN, ERROR_INT, msg(msg), args(limiter, null), t);
+            if (tryAcquire(limiter, msg)) {
+                if (emitter != null) {
+                    emitter.log(marker, FQCN, ERROR_INT, msg(msg), args(limiter, null), t);
                 } else {
                     logger.error(marker, msg(msg), args(limiter, t));
                 }
             }
         }
     }
+
+    /**
+     * 指定级别的限流日志，参数通过 {@link Supplier} 延迟计算，只有获得准许、真正输出时才会调用
+     * <p>被限流的调用不会计算参数，也不会分配varargs数组：</p>
+     * <pre>{@code
+     * rateLogger.atWarn().log("slow query:{}, cost:{}", () -> describe(query), () -> cost);
+     * rateLogger.atError().log(() -> "fail to process " + request, e);
+     * }</pre>
+     * <p>对于 {@link #perMessageRateLogger}，{@link #log(Supplier)} 以Supplier的类型（即每个lambda的调用点）区分日志类型。</p>
+     */
+    public final class LevelLogger {
+
+        /**
+         * fully qualified class name, for location aware logger to find the caller.
+         */
+        private final String fqcn = LevelLogger.class.getName();
+        private final int level;
+
+        private LevelLogger(int level) {
+            this.level = level;
+        }
+
+        public boolean isEnabled() {
+            switch (level) {
+                case TRACE_INT:
+                    return logger.isTraceEnabled();
+                case DEBUG_INT:
+                    return logger.isDebugEnabled();
+                case INFO_INT:
+                    return logger.isInfoEnabled();
+                case WARN_INT:
+                    return logger.isWarnEnabled();
+                default:
+                    return logger.isErrorEnabled();
+            }
+        }
+
+        public void log(@Nonnull Supplier<String> msg) {
+            log(msg, null);
+        }
+
+        public void log(@Nonnull Supplier<String> msg, @Nullable Throwable t) {
+            if (isEnabled()) {
+                String key = msg.getClass().getName();
+                SimpleRateLimiter limiter = getLimiter(key);
+                if (tryAcquire(limiter, key)) {
+                    emit(SUPPLIED_MSG_FORMAT, args(limiter, msg.get()), t);
+                }
+            }
+        }
+
+        public void log(@Nonnull String format, @Nonnull Supplier<?> arg) {
+            if (isEnabled()) {
+                SimpleRateLimiter limiter = getLimiter(format);
+                if (tryAcquire(limiter, format)) {
+                    emit(msg(format), args(limiter, arg.get()), null);
+                }
+            }
+        }
+
+        public void log(@Nonnull String format, @Nonnull Supplier<?> arg1, @Nonnull Supplier<?> arg2) {
+            if (isEnabled()) {
+                SimpleRateLimiter limiter = getLimiter(format);
+                if (tryAcquire(limiter, format)) {
+                    emit(msg(format), args(limiter, arg1.get(), arg2.get()), null);
+                }
+            }
+        }
+
+        public void log(@Nonnull String format, @Nonnull Supplier<?> arg1, @Nonnull Supplier<?> arg2,
+                @Nonnull Supplier<?> arg3) {
+            if (isEnabled()) {
+                SimpleRateLimiter limiter = getLimiter(format);
+                if (tryAcquire(limiter, format)) {
+                    emit(msg(format), new Object[] {limiter.getSkipCountAndClear(), arg1.get(), arg2.get(),
+                            arg3.get()}, null);
+                }
+            }
+        }
+
+        private void emit(String format, Object[] args, @Nullable Throwable t) {
+            if (emitter != null) {
+                emitter.log(null, fqcn, level, format, args, t);
+                return;
+            }
+            Object[] arguments = args;
+            if (t != null) {
+                arguments = Arrays.copyOf(args, args.length + 1);
+                arguments[args.length] = t;
+            }
+            switch (level) {
+                case TRACE_INT:
+                    logger.trace(format, arguments);
+                    break;
+                case DEBUG_INT:
+                    logger.debug(format, arguments);
+                    break;
+                case INFO_INT:
+                    logger.info(format, arguments);
+                    break;
+                case WARN_INT:
+                    logger.warn(format, arguments);
+                    break;
+                default:
+                    logger.error(format, arguments);
+                    break;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Emitter {
+
+        void log(Marker marker, String fqcn, int level, String message, Object[] argArray, Throwable t);
+    }
 }
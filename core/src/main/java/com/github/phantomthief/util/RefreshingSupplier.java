@@ -0,0 +1,364 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.math.LongMath.saturatedMultiply;
+import static java.lang.System.nanoTime;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * 带过期时间的缓存提供器，适用于配置快照、访问令牌这类需要定期更新的值
+ * <p>值在 {@link Builder#expireAfter} 之后过期，过期后的第一次调用同步加载，同一时刻只有一个线程加载，其他线程等待结果；
+ * 在过期之前 {@link Builder#refreshAhead} 的时间内被访问时，会在后台异步刷新，刷新完成前继续返回旧值，
+ * 所以只要持续有访问，调用方就不会遇到过期时的加载延迟。</p>
+ * <p>加载失败后按指数退避，退避期间不会再次调用原始提供器：异步刷新失败时继续返回未过期的旧值，
+ * 同步加载失败时直接抛出上一次的异常。</p>
+ * <pre>{@code
+ * RefreshingSupplier<String> token = RefreshingSupplier.newBuilder()
+ *         .expireAfter(ofMinutes(10))
+ *         .refreshAhead(ofMinutes(1))
+ *         .build(() -> authClient.fetchToken());
+ * }</pre>
+ */
+@ThreadSafe
+public final class RefreshingSupplier<T> implements Supplier<T> {
+
+    private static final Logger logger = getLogger(RefreshingSupplier.class);
+
+    private final Supplier<T> delegate;
+    private final long expireNanos;
+    private final long refreshAheadNanos;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Executor executor;
+
+    private volatile Snapshot<T> snapshot;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 以下字段由this保护，失败状态同时被异步刷新读取，所以是volatile的
+     */
+    private volatile int failures;
+    private volatile long retryAfterNanos;
+    private volatile Throwable lastFailure;
+
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+    private final LongAdder refresh = new LongAdder();
+    private final LongAdder failure = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    private RefreshingSupplier(Builder builder, Supplier<T> delegate) {
+        this.delegate = delegate;
+        this.expireNanos = builder.expireNanos;
+        this.refreshAheadNanos = builder.refreshAheadNanos < 0 ? expireNanos / 5 : builder.refreshAheadNanos;
+        this.minBackoffNanos = builder.minBackoffNanos;
+        this.maxBackoffNanos = Math.max(builder.maxBackoffNanos, minBackoffNanos);
+        this.executor = builder.executor != null ? builder.executor : MoreSuppliers.sharedExecutor();
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 返回未过期的值，必要时同步加载或者在后台刷新
+     *
+     * @throws RuntimeException 同步加载失败，或者处于加载失败后的退避期间
+     */
+    @Override
+    public T get() {
+        Snapshot<T> current = snapshot;
+        long now = nanoTime();
+        if (current != null && now - current.expireAt < 0) {
+            hit.increment();
+            if (now - current.refreshAt >= 0) {
+                tryRefresh(now);
+            }
+            return current.value;
+        }
+        return load();
+    }
+
+    private synchronized T load() {
+        Snapshot<T> current = snapshot;
+        long now = nanoTime();
+        if (current != null && now - current.expireAt < 0) {
+            // 等待锁期间已经被其他线程加载
+            hit.increment();
+            return current.value;
+        }
+        miss.increment();
+        Throwable failed = lastFailure;
+        if (failed != null && now - retryAfterNanos < 0) {
+            throwIfUnchecked(failed);
+            throw new UncheckedExecutionException(failed);
+        }
+        return doLoad().value;
+    }
+
+    private void tryRefresh(long now) {
+        if (now - retryAfterNanos < 0 || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    synchronized (this) {
+                        doLoad();
+                    }
+                    refresh.increment();
+                } catch (Throwable e) {
+                    logger.warn("fail to refresh value, keep using the old one, retry after {}ms.",
+                            TimeUnit.NANOSECONDS.toMillis(retryAfterNanos - nanoTime()), e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+            logger.warn("fail to submit refresh task.", e);
+        }
+    }
+
+    /**
+     * 调用方需要持有this的锁
+     */
+    private Snapshot<T> doLoad() {
+        long start = nanoTime();
+        T value;
+        try {
+            value = delegate.get();
+        } catch (Throwable e) {
+            long now = nanoTime();
+            recordLoad(now - start);
+            failure.increment();
+            int count = failures = failures + 1;
+            long backoff = saturatedMultiply(minBackoffNanos, 1L << Math.min(count - 1, 62));
+            retryAfterNanos = now + Math.min(backoff, maxBackoffNanos);
+            lastFailure = e;
+            throw e;
+        }
+        long now = nanoTime();
+        recordLoad(now - start);
+        failures = 0;
+        lastFailure = null;
+        Snapshot<T> result = new Snapshot<>(value, now + expireNanos - refreshAheadNanos, now + expireNanos);
+        snapshot = result;
+        return result;
+    }
+
+    private void recordLoad(long costNanos) {
+        loadCount.increment();
+        loadNanos.add(costNanos);
+    }
+
+    /**
+     * 丢弃当前的值，下次调用时重新加载
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+        failures = 0;
+        retryAfterNanos = nanoTime();
+        lastFailure = null;
+    }
+
+    /**
+     * @return 是否有未过期的值
+     */
+    public boolean isPresent() {
+        Snapshot<T> current = snapshot;
+        return current != null && nanoTime() - current.expireAt < 0;
+    }
+
+    @Nonnull
+    public Stats getStats() {
+        return new Stats(hit.sum(), miss.sum(), refresh.sum(), failure.sum(), loadCount.sum(), loadNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "MoreSuppliers.refreshing(" + delegate + ")";
+    }
+
+    private static final class Snapshot<T> {
+
+        private final T value;
+        private final long refreshAt;
+        private final long expireAt;
+
+        private Snapshot(T value, long refreshAt, long expireAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * {@link RefreshingSupplier} 的统计信息
+     */
+    public static final class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long refreshCount;
+        private final long failureCount;
+        private final long loadCount;
+        private final long totalLoadNanos;
+
+        private Stats(long hitCount, long missCount, long refreshCount, long failureCount, long loadCount,
+                long totalLoadNanos) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.refreshCount = refreshCount;
+            this.failureCount = failureCount;
+            this.loadCount = loadCount;
+            this.totalLoadNanos = totalLoadNanos;
+        }
+
+        /**
+         * @return 直接返回缓存值的次数
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * @return 没有可用的值，需要同步加载的次数
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return 后台刷新成功的次数
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        /**
+         * @return 加载失败的次数，包括同步加载和后台刷新
+         */
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public long getTotalLoadNanos() {
+            return totalLoadNanos;
+        }
+
+        public long getAverageLoadNanos() {
+            return loadCount == 0 ? 0 : totalLoadNanos / loadCount;
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("hitCount", hitCount)
+                    .add("missCount", missCount)
+                    .add("refreshCount", refreshCount)
+                    .add("failureCount", failureCount)
+                    .add("loadCount", loadCount)
+                    .add("averageLoadNanos", getAverageLoadNanos())
+                    .toString();
+        }
+    }
+
+    /**
+     * {@link RefreshingSupplier}构造器
+     */
+    public static final class Builder {
+
+        private long expireNanos = -1;
+        private long refreshAheadNanos = -1;
+        private long minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(10);
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * 值加载之后的有效期，必须设置
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder expireAfter(@Nonnull Duration duration) {
+            checkNotNull(duration);
+            checkArgument(duration.toNanos() > 0, "invalid expire duration:%s", duration);
+            this.expireNanos = duration.toNanos();
+            return this;
+        }
+
+        /**
+         * 在过期之前多久开始后台刷新，默认为有效期的1/5，设置为0时不进行后台刷新
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder refreshAhead(@Nonnull Duration duration) {
+            checkNotNull(duration);
+            checkArgument(!duration.isNegative(), "invalid refresh ahead duration:%s", duration);
+            this.refreshAheadNanos = duration.toNanos();
+            return this;
+        }
+
+        /**
+         * 加载失败后的退避时间，从minBackoff开始每次失败翻倍，最多为maxBackoff，默认为100ms~10s
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder backoff(@Nonnull Duration minBackoff, @Nonnull Duration maxBackoff) {
+            checkNotNull(minBackoff);
+            checkNotNull(maxBackoff);
+            checkArgument(!minBackoff.isNegative(), "invalid min backoff:%s", minBackoff);
+            checkArgument(maxBackoff.compareTo(minBackoff) >= 0, "invalid max backoff:%s", maxBackoff);
+            this.minBackoffNanos = minBackoff.toNanos();
+            this.maxBackoffNanos = maxBackoff.toNanos();
+            return this;
+        }
+
+        /**
+         * 执行后台刷新的执行器，默认为与{@link MoreSuppliers#asyncLazyEx(Supplier)}共享的有界线程池
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder executor(@Nonnull Executor executor) {
+            this.executor = checkNotNull(executor);
+            return this;
+        }
+
+        @Nonnull
+        public <T> RefreshingSupplier<T> build(@Nonnull Supplier<T> delegate) {
+            checkNotNull(delegate);
+            checkArgument(expireNanos > 0, "expire duration must be set.");
+            checkArgument(refreshAheadNanos < expireNanos, "refresh ahead must be less than expire duration.");
+            return new RefreshingSupplier<>(this, delegate);
+        }
+    }
+}
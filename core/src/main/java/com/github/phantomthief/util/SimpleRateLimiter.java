@@ -1,10 +1,15 @@
 package com.github.phantomthief.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.math.LongMath.saturatedMultiply;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -12,12 +17,23 @@ import javax.annotation.concurrent.ThreadSafe;
 /**
  * 对于低频场景（例如n秒一次），使用 {@link com.google.common.util.concurrent.RateLimiter} 开销较大
  * 本实现基于上一次访问时间戳模式，大幅降低开销
+ * 获取准许时只对时间戳做一次CAS，没有锁，周期边界上大量线程并发竞争时也不会出现锁排队
+ * <p>默认每个周期只准许一次请求，不允许突发；通过 {@link #create(double, int)} 可以开启令牌桶模式，
+ * 空闲时最多积攒maxBurst个准许，适合对外部接口配额做限流。</p>
+ * <p>令牌桶基于GCRA（理论到达时间）实现，整个状态只有一个long，获取准许时不加锁、不分配对象。</p>
+ * <p>{@link #acquire()}/{@link #tryAcquire(Duration)}会先通过CAS预约一个未来的时间槽，再休眠到该时间点，
+ * 每个线程的唤醒时间都是独立的，因此等待的线程按预约顺序（FIFO）依次被唤醒，不会集中争抢。</p>
  *
  * @author w.vela
  * Created on 2019-11-28.
  */
 @ThreadSafe
-public class SimpleRateLimiter {
+public class SimpleRateLimiter implements Limiter {
+
+    private static final AtomicLongFieldUpdater<SimpleRateLimiter> LAST_ACQUIRED_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SimpleRateLimiter.class, "lastAcquiredNanos");
+    private static final AtomicLongFieldUpdater<SimpleRateLimiter> TAT_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SimpleRateLimiter.class, "theoreticalArrivalNanos");
 
     private final LongAdder skip = new LongAdder();
 
@@ -27,9 +43,26 @@ public class SimpleRateLimiter {
     private long allowTimesPerNanos;
     private volatile long lastAcquiredNanos;
 
+    /**
+     * 最多积攒的准许数，为1时不允许突发
+     */
+    private final int maxBurst;
+    /**
+     * 令牌桶模式下，下一个准许的理论发放时间，早于当前时间说明桶里还有积攒的准许
+     */
+    private volatile long theoreticalArrivalNanos;
+
     private SimpleRateLimiter(long allowTimesPerNanos) {
+        this(allowTimesPerNanos, 1);
+    }
+
+    private SimpleRateLimiter(long allowTimesPerNanos, int maxBurst) {
         checkState(allowTimesPerNanos > 0);
+        checkArgument(maxBurst > 0, "invalid max burst:%s", maxBurst);
         this.allowTimesPerNanos = allowTimesPerNanos;
+        this.maxBurst = maxBurst;
+        // 理论到达时间不晚于当前时间即为满桶
+        this.theoreticalArrivalNanos = System.nanoTime();
     }
 
     /**
@@ -54,6 +87,30 @@ public class SimpleRateLimiter {
         return new SimpleRateLimiter(allowTimesPerNanos);
     }
 
+    /**
+     * 创建一个令牌桶模式的{@link SimpleRateLimiter}对象，按每秒permitsPerSecond个的速率补充准许，空闲时最多积攒maxBurst个
+     *
+     * @param permitsPerSecond 每秒补充的准许数
+     * @param maxBurst 最多积攒的准许数，即允许的最大突发
+     * @return {@link SimpleRateLimiter}对象
+     */
+    public static SimpleRateLimiter create(double permitsPerSecond, int maxBurst) {
+        checkState(permitsPerSecond > 0);
+        long allowTimesPerNanos = (long) (SECONDS.toNanos(1) / permitsPerSecond);
+        return new SimpleRateLimiter(allowTimesPerNanos, maxBurst);
+    }
+
+    /**
+     * 创建一个令牌桶模式的{@link SimpleRateLimiter}对象，每隔periodPerTimes补充一个准许，空闲时最多积攒maxBurst个
+     *
+     * @param periodPerTimes 补充一个准许的时间间隔
+     * @param maxBurst 最多积攒的准许数，即允许的最大突发
+     * @return {@link SimpleRateLimiter}对象
+     */
+    public static SimpleRateLimiter createByPeriod(Duration periodPerTimes, int maxBurst) {
+        return new SimpleRateLimiter(checkNotNull(periodPerTimes).toNanos(), maxBurst);
+    }
+
     /**
      * 设置当前{@link SimpleRateLimiter}对象每秒允许的请求次数
      *
@@ -81,17 +138,57 @@ public class SimpleRateLimiter {
         return allowTimesPerNanos;
     }
 
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
     /**
      * 判断本次请求是否获得准许处理请求
      *
      * @return 是否获得准许
      */
+    @Override
     public boolean tryAcquire() {
+        if (maxBurst > 1) {
+            return tryAcquire(1);
+        }
         long nanoTime = System.nanoTime();
-        if (nanoTime >= lastAcquiredNanos + allowTimesPerNanos || lastAcquiredNanos == 0) {
-            synchronized (this) {
-                if (nanoTime >= lastAcquiredNanos + allowTimesPerNanos || lastAcquiredNanos == 0) {
-                    lastAcquiredNanos = nanoTime;
+        long last = lastAcquiredNanos;
+        if (last == 0 || nanoTime - last >= allowTimesPerNanos) {
+            // 只有一个线程能CAS成功，其它竞争失败的线程说明本周期的准许已经被取走了
+            if (LAST_ACQUIRED_UPDATER.compareAndSet(this, last, nanoTime)) {
+                return true;
+            }
+        }
+        skip.increment();
+        return false;
+    }
+
+    /**
+     * 判断本次请求是否获得permits个准许，要么全部获得，要么一个都不消耗
+     * <p>非令牌桶模式下，maxBurst为1，permits只能为1</p>
+     *
+     * @param permits 需要的准许数，超过maxBurst时永远不会成功
+     * @return 是否获得准许
+     */
+    public boolean tryAcquire(int permits) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        if (maxBurst == 1 && permits == 1) {
+            return tryAcquire();
+        }
+        if (permits <= maxBurst) {
+            long period = allowTimesPerNanos;
+            long burstNanos = saturatedMultiply(period, maxBurst);
+            long cost = saturatedMultiply(period, permits);
+            long nanoTime = System.nanoTime();
+            while (true) {
+                long tat = theoreticalArrivalNanos;
+                // 桶里积攒的准许不超过maxBurst个
+                long base = tat - nanoTime < 0 ? nanoTime : tat;
+                if (cost > burstNanos - (base - nanoTime)) {
+                    break;
+                }
+                if (TAT_UPDATER.compareAndSet(this, tat, base + cost)) {
                     return true;
                 }
             }
@@ -100,11 +197,130 @@ public class SimpleRateLimiter {
         return false;
     }
 
+    /**
+     * 获取最多permits个准许，有多少拿多少，适合批量预取准许的场景（如 {@link InMemoryRateLimitCoordinator}）
+     *
+     * @param permits 最多需要的准许数
+     * @return 实际获得的准许数，为0时计入跳过的请求数
+     */
+    public int tryAcquireAtMost(int permits) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        if (maxBurst == 1) {
+            return tryAcquire() ? 1 : 0;
+        }
+        long period = allowTimesPerNanos;
+        long burstNanos = saturatedMultiply(period, maxBurst);
+        long nanoTime = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrivalNanos;
+            long base = tat - nanoTime < 0 ? nanoTime : tat;
+            long available = (burstNanos - (base - nanoTime)) / period;
+            if (available <= 0) {
+                skip.increment();
+                return 0;
+            }
+            int granted = (int) Math.min(available, permits);
+            if (TAT_UPDATER.compareAndSet(this, tat, base + period * granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * 获取一个准许，没有可用的准许时阻塞到预约的时间点，不响应中断
+     */
+    public void acquire() {
+        acquire(1);
+    }
+
+    /**
+     * 获取permits个准许，没有足够的准许时阻塞到预约的时间点，不响应中断
+     * <p>与{@link #tryAcquire(int)}不同，permits可以超过maxBurst，超出部分由后续的请求等待偿还</p>
+     *
+     * @param permits 需要的准许数
+     */
+    public void acquire(int permits) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        long waitNanos = reserve(permits, Long.MAX_VALUE);
+        if (waitNanos > 0) {
+            sleepUninterruptibly(waitNanos, NANOSECONDS);
+        }
+    }
+
+    /**
+     * 在timeout时间内获取一个准许
+     *
+     * @param timeout 最长等待时间
+     * @return 是否获得准许，如果在timeout内不能获得，立即返回false而不会等待
+     */
+    public boolean tryAcquire(Duration timeout) {
+        return tryAcquire(1, timeout);
+    }
+
+    /**
+     * 在timeout时间内获取permits个准许
+     *
+     * @param permits 需要的准许数
+     * @param timeout 最长等待时间
+     * @return 是否获得准许，如果在timeout内不能获得，立即返回false而不会等待，也不消耗准许
+     */
+    public boolean tryAcquire(int permits, Duration timeout) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        long waitNanos = reserve(permits, Math.max(checkNotNull(timeout).toNanos(), 0L));
+        if (waitNanos < 0) {
+            skip.increment();
+            return false;
+        }
+        if (waitNanos > 0) {
+            sleepUninterruptibly(waitNanos, NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 预约permits个准许
+     *
+     * @return 需要等待的时间，超过maxWaitNanos时不预约并返回-1
+     */
+    private long reserve(int permits, long maxWaitNanos) {
+        long period = allowTimesPerNanos;
+        long cost = saturatedMultiply(period, permits);
+        long nanoTime = System.nanoTime();
+        if (maxBurst == 1) {
+            while (true) {
+                long last = lastAcquiredNanos;
+                // 时间戳记录的是最后一个被预约的时间槽，可能在未来
+                long slot = last == 0 || last + period - nanoTime < 0 ? nanoTime : last + period;
+                long waitNanos = slot - nanoTime;
+                if (waitNanos > maxWaitNanos) {
+                    return -1;
+                }
+                if (LAST_ACQUIRED_UPDATER.compareAndSet(this, last, slot + (cost - period))) {
+                    return waitNanos;
+                }
+            }
+        } else {
+            long burstNanos = saturatedMultiply(period, maxBurst);
+            while (true) {
+                long tat = theoreticalArrivalNanos;
+                long base = tat - nanoTime < 0 ? nanoTime : tat;
+                long waitNanos = Math.max(0L, (base - nanoTime) + cost - burstNanos);
+                if (waitNanos > maxWaitNanos) {
+                    return -1;
+                }
+                if (TAT_UPDATER.compareAndSet(this, tat, base + cost)) {
+                    return waitNanos;
+                }
+            }
+        }
+    }
+
     /**
      * 计算到上次执行本操作前，共计多少个没有获取到准许，计算完成后重新计数
      *
      * @return 累计跳过的请求数
      */
+    @Override
     public long getSkipCountAndClear() {
         return skip.sumThenReset();
     }
@@ -0,0 +1,155 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 滑动窗口计数限流器，限制任意一个窗口内的请求总数，例如“任意1秒内最多500次”
+ * <p>窗口被切分为若干个子桶组成的环，每个子桶用一个long同时存储所属的时间片序号和计数，
+ * 整个实现无锁；窗口的精度为一个子桶的时长，子桶越多越精确，但每次请求需要累加的子桶也越多。</p>
+ * <p>为了保证不超过上限，计数会先乐观地增加再检查，超过上限时撤销，因此在高并发下可能略微多拒绝一些请求。</p>
+ */
+@ThreadSafe
+public class SlidingWindowRateLimiter implements Limiter {
+
+    private static final int DEFAULT_BUCKETS = 10;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final LongAdder skip = new LongAdder();
+
+    private final int maxPermits;
+    private final long bucketNanos;
+    private final long originNanos;
+    /**
+     * 高32位为时间片序号，低32位为计数
+     */
+    private final AtomicLongArray buckets;
+
+    private SlidingWindowRateLimiter(int maxPermits, long windowNanos, int bucketCount) {
+        checkArgument(maxPermits > 0, "invalid max permits:%s", maxPermits);
+        checkArgument(bucketCount > 0, "invalid bucket count:%s", bucketCount);
+        this.maxPermits = maxPermits;
+        this.bucketNanos = windowNanos / bucketCount;
+        checkArgument(bucketNanos > 0, "window is too small.");
+        this.originNanos = System.nanoTime();
+        this.buckets = new AtomicLongArray(bucketCount);
+        // 初始时间片序号设置为足够早，避免被计入窗口
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, pack(-bucketCount, 0));
+        }
+    }
+
+    /**
+     * 创建一个{@link SlidingWindowRateLimiter}对象，使用10个子桶
+     *
+     * @param maxPermits 任意一个窗口内最多允许的请求数
+     * @param window 窗口长度
+     * @return {@link SlidingWindowRateLimiter}对象
+     */
+    public static SlidingWindowRateLimiter create(int maxPermits, @Nonnull Duration window) {
+        return create(maxPermits, window, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * 创建一个{@link SlidingWindowRateLimiter}对象
+     *
+     * @param maxPermits 任意一个窗口内最多允许的请求数
+     * @param window 窗口长度
+     * @param bucketCount 子桶数
+     * @return {@link SlidingWindowRateLimiter}对象
+     */
+    public static SlidingWindowRateLimiter create(int maxPermits, @Nonnull Duration window,
+            int bucketCount) {
+        return new SlidingWindowRateLimiter(maxPermits, checkNotNull(window).toNanos(), bucketCount);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 判断本次请求是否获得permits个准许，要么全部获得，要么一个都不消耗
+     *
+     * @param permits 需要的准许数
+     * @return 是否获得准许
+     */
+    public boolean tryAcquire(int permits) {
+        checkArgument(permits > 0, "invalid permits:%s", permits);
+        if (permits <= maxPermits) {
+            int epoch = (int) ((System.nanoTime() - originNanos) / bucketNanos);
+            int index = Math.floorMod(epoch, buckets.length());
+            if (add(index, epoch, permits)) {
+                if (count(epoch) <= maxPermits) {
+                    return true;
+                }
+                add(index, epoch, -permits);
+            }
+        }
+        skip.increment();
+        return false;
+    }
+
+    /**
+     * @return 当前窗口内已经获得准许的请求数
+     */
+    public int getCurrentCount() {
+        int epoch = (int) ((System.nanoTime() - originNanos) / bucketNanos);
+        return (int) Math.min(count(epoch), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return 是否计入了子桶，子桶已经被更新的时间片占用时（当前线程在计算时间片后停顿过久）返回false
+     */
+    private boolean add(int index, int epoch, int delta) {
+        while (true) {
+            long value = buckets.get(index);
+            int diff = epochOf(value) - epoch;
+            long newValue;
+            if (diff == 0) {
+                newValue = pack(epoch, (int) (value & COUNT_MASK) + delta);
+            } else if (diff > 0 || delta < 0) {
+                // 不能用过期的时间片覆盖更新的子桶；撤销时子桶已经轮转，撤销的计数已经随之清空
+                return false;
+            } else {
+                newValue = pack(epoch, delta);
+            }
+            if (buckets.compareAndSet(index, value, newValue)) {
+                return true;
+            }
+        }
+    }
+
+    private long count(int epoch) {
+        int length = buckets.length();
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            long value = buckets.get(i);
+            int age = epoch - epochOf(value);
+            if (age >= 0 && age < length) {
+                sum += value & COUNT_MASK;
+            }
+        }
+        return sum;
+    }
+
+    private static int epochOf(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static long pack(int epoch, int count) {
+        return ((long) epoch << 32) | (count & COUNT_MASK);
+    }
+
+    @Override
+    public long getSkipCountAndClear() {
+        return skip.sumThenReset();
+    }
+}
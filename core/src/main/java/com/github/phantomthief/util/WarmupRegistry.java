@@ -0,0 +1,410 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * 启动时并行预热懒加载提供器的注册表
+ * <p>{@link MoreSuppliers#lazy} 这类提供器在第一次访问时才加载，如果第一次访问发生在请求路径上，发布后的第一批请求会依次等待它们加载。
+ * 把它们注册到这里，在启动阶段调用 {@link #warmUp()}，就可以在一个有界的线程池中并行加载：
+ * 没有依赖的提供器立即开始，其他提供器在依赖全部完成后开始，也就是按照拓扑顺序执行。</p>
+ * <p>依赖加载失败时，依赖它的提供器不再加载，直接记为失败；{@link #awaitReady(Duration)} 可以作为对外提供服务之前的屏障。</p>
+ * <pre>{@code
+ * WarmupRegistry registry = WarmupRegistry.newBuilder().parallelism(8).build();
+ * registry.register("config", CONFIG)
+ *         .register("db", DATA_SOURCE, "config")
+ *         .register("userCache", USER_CACHE, "db");
+ * registry.warmUp();
+ * if (!registry.awaitReady(ofSeconds(30))) {
+ *     logger.warn("warm up not finished.");
+ * }
+ * }</pre>
+ */
+@ThreadSafe
+public final class WarmupRegistry {
+
+    private static final Logger logger = getLogger(WarmupRegistry.class);
+
+    private final int parallelism;
+    private final Executor executor;
+
+    /**
+     * 由this保护，开始预热后不再修改
+     */
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    private volatile SettableFuture<Report> ready;
+
+    private WarmupRegistry(Builder builder) {
+        this.parallelism = builder.parallelism;
+        this.executor = builder.executor;
+    }
+
+    @CheckReturnValue
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 注册一个需要预热的提供器
+     *
+     * @param name 提供器的名称，不能重复
+     * @param supplier 需要预热的提供器，预热时调用一次 {@link Supplier#get()}
+     * @param dependsOn 依赖的提供器名称，它们全部成功之后才开始预热本提供器，可以在本提供器之后注册
+     * @return 当前注册表，便于链式调用
+     */
+    @Nonnull
+    public synchronized WarmupRegistry register(@Nonnull String name, @Nonnull Supplier<?> supplier,
+            @Nonnull String... dependsOn) {
+        checkNotNull(name);
+        checkNotNull(supplier);
+        checkNotNull(dependsOn);
+        checkState(ready == null, "warm up already started.");
+        checkArgument(!nodes.containsKey(name), "duplicate name:%s", name);
+        nodes.put(name, new Node(name, supplier, dependsOn.clone()));
+        return this;
+    }
+
+    /**
+     * 开始预热，立即返回，多次调用返回同一个结果
+     *
+     * @return 全部提供器完成（成功或失败）时完成
+     * @throws IllegalStateException 依赖的提供器没有注册，或者存在循环依赖
+     */
+    @Nonnull
+    public synchronized ListenableFuture<Report> warmUp() {
+        if (ready != null) {
+            return ready;
+        }
+        List<Node> roots = link();
+        SettableFuture<Report> result = SettableFuture.create();
+        ready = result;
+        if (nodes.isEmpty()) {
+            result.set(new Report(new LinkedHashMap<>(), new LinkedHashMap<>(), 0));
+            return result;
+        }
+        ExecutorService owned = null;
+        Executor thisExecutor = executor;
+        if (thisExecutor == null) {
+            owned = Executors.newFixedThreadPool(Math.min(parallelism, nodes.size()), new ThreadFactoryBuilder()
+                    .setNameFormat("warmup-%d")
+                    .setDaemon(true)
+                    .build());
+            thisExecutor = owned;
+        }
+        new Run(thisExecutor, owned, result).start(roots);
+        return result;
+    }
+
+    /**
+     * 建立依赖关系，并检查缺失的依赖和循环依赖
+     *
+     * @return 没有依赖的提供器
+     */
+    private List<Node> link() {
+        List<Node> roots = new ArrayList<>();
+        nodes.values().forEach(it -> it.dependents.clear());
+        for (Node node : nodes.values()) {
+            for (String dependency : node.dependsOn) {
+                Node parent = nodes.get(dependency);
+                checkState(parent != null, "%s depends on an unknown supplier:%s", node.name, dependency);
+                parent.dependents.add(node);
+            }
+            node.pending.set(node.dependsOn.length);
+            if (node.dependsOn.length == 0) {
+                roots.add(node);
+            }
+        }
+        // Kahn's algorithm, all nodes should be visited if there is no cycle
+        Map<Node, Integer> inDegrees = new LinkedHashMap<>();
+        nodes.values().forEach(it -> inDegrees.put(it, it.dependsOn.length));
+        Deque<Node> queue = new ArrayDeque<>(roots);
+        int visited = 0;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            visited++;
+            for (Node dependent : node.dependents) {
+                if (inDegrees.merge(dependent, -1, Integer::sum) == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        if (visited != nodes.size()) {
+            List<String> cycle = new ArrayList<>();
+            inDegrees.forEach((node, degree) -> {
+                if (degree > 0) {
+                    cycle.add(node.name);
+                }
+            });
+            throw new IllegalStateException("found cyclic dependencies in:" + cycle);
+        }
+        return roots;
+    }
+
+    /**
+     * @return 是否已经全部完成（成功或失败）
+     */
+    public boolean isReady() {
+        SettableFuture<Report> current = ready;
+        return current != null && current.isDone();
+    }
+
+    /**
+     * 等待预热完成，还没有开始预热时立即开始
+     *
+     * @return 是否在timeout内全部完成（成功或失败），具体结果通过 {@link #warmUp()} 返回的 {@link Report} 获取
+     */
+    public boolean awaitReady(@Nonnull Duration timeout) {
+        try {
+            getUninterruptibly(warmUp(), timeout.toNanos(), NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // never happened
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Node {
+
+        private final String name;
+        private final Supplier<?> supplier;
+        private final String[] dependsOn;
+        private final List<Node> dependents = new ArrayList<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Node(String name, Supplier<?> supplier, String[] dependsOn) {
+            this.name = name;
+            this.supplier = supplier;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    /**
+     * 一次预热的执行状态
+     */
+    private final class Run {
+
+        private final Executor executor;
+        private final ExecutorService owned;
+        private final SettableFuture<Report> result;
+        private final long start = nanoTime();
+        private final AtomicInteger remaining = new AtomicInteger(nodes.size());
+        private final Map<String, Duration> costs = new ConcurrentHashMap<>();
+        private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+        private Run(Executor executor, ExecutorService owned, SettableFuture<Report> result) {
+            this.executor = executor;
+            this.owned = owned;
+            this.result = result;
+        }
+
+        private void start(List<Node> roots) {
+            roots.forEach(this::submit);
+        }
+
+        private void submit(Node node) {
+            // 已经因为别的依赖失败而记为失败的，不再执行
+            if (node.done.get()) {
+                return;
+            }
+            try {
+                executor.execute(() -> run(node));
+            } catch (RejectedExecutionException e) {
+                fail(node, e);
+            }
+        }
+
+        private void run(Node node) {
+            if (node.done.get()) {
+                return;
+            }
+            long begin = nanoTime();
+            try {
+                node.supplier.get();
+            } catch (Throwable e) {
+                logger.error("fail to warm up:{}", node.name, e);
+                fail(node, e);
+                return;
+            }
+            if (!node.done.compareAndSet(false, true)) {
+                return;
+            }
+            costs.put(node.name, Duration.ofNanos(nanoTime() - begin));
+            for (Node dependent : node.dependents) {
+                if (dependent.pending.decrementAndGet() == 0) {
+                    submit(dependent);
+                }
+            }
+            finishOne();
+        }
+
+        /**
+         * 失败的提供器以及所有直接、间接依赖它的提供器都记为失败
+         */
+        private void fail(Node node, Throwable cause) {
+            if (!node.done.compareAndSet(false, true)) {
+                return;
+            }
+            failures.put(node.name, cause);
+            for (Node dependent : node.dependents) {
+                fail(dependent, new IllegalStateException("dependency failed:" + node.name, cause));
+            }
+            finishOne();
+        }
+
+        private void finishOne() {
+            if (remaining.decrementAndGet() != 0) {
+                return;
+            }
+            // 按注册顺序输出
+            Map<String, Duration> orderedCosts = new LinkedHashMap<>();
+            Map<String, Throwable> orderedFailures = new LinkedHashMap<>();
+            for (String name : nodes.keySet()) {
+                Duration cost = costs.get(name);
+                if (cost != null) {
+                    orderedCosts.put(name, cost);
+                }
+                Throwable failure = failures.get(name);
+                if (failure != null) {
+                    orderedFailures.put(name, failure);
+                }
+            }
+            Report report = new Report(orderedCosts, orderedFailures, nanoTime() - start);
+            logger.info("warm up finished:{}", report);
+            if (owned != null) {
+                owned.shutdown();
+            }
+            result.set(report);
+        }
+    }
+
+    /**
+     * 预热的结果
+     */
+    public static final class Report {
+
+        private final Map<String, Duration> costs;
+        private final Map<String, Throwable> failures;
+        private final long elapsedNanos;
+
+        private Report(Map<String, Duration> costs, Map<String, Throwable> failures, long elapsedNanos) {
+            this.costs = unmodifiableMap(costs);
+            this.failures = unmodifiableMap(failures);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean isAllSuccess() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * @return 预热成功的提供器的耗时，按注册顺序排列
+         */
+        @Nonnull
+        public Map<String, Duration> getCosts() {
+            return costs;
+        }
+
+        /**
+         * @return 预热失败的提供器及其异常，依赖失败的提供器的异常为 {@link IllegalStateException}
+         */
+        @Nonnull
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return 从开始预热到全部完成的耗时
+         */
+        @Nonnull
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("elapsed", getElapsed())
+                    .add("costs", costs)
+                    .add("failures", failures.keySet())
+                    .toString();
+        }
+    }
+
+    /**
+     * {@link WarmupRegistry}构造器
+     */
+    public static final class Builder {
+
+        private int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * 预热使用的线程数，默认为CPU核数（至少为2），预热完成后线程池自动关闭
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder parallelism(int parallelism) {
+            checkArgument(parallelism > 0, "invalid parallelism:%s", parallelism);
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 使用外部的执行器预热，设置后 {@link #parallelism} 不再生效，并发度由执行器决定
+         */
+        @CheckReturnValue
+        @Nonnull
+        public Builder executor(@Nonnull Executor executor) {
+            this.executor = checkNotNull(executor);
+            return this;
+        }
+
+        @Nonnull
+        public WarmupRegistry build() {
+            return new WarmupRegistry(this);
+        }
+    }
+}
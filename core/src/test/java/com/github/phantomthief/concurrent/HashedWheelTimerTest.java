@@ -0,0 +1,94 @@
+package com.github.phantomthief.concurrent;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.concurrent.HashedWheelTimer.Timeout;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void testExpire() throws InterruptedException {
+        HashedWheelTimer timer = HashedWheelTimer.sharedTimer();
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = timer.newTimeout(latch::countDown, 100, MILLISECONDS);
+        assertTrue(latch.await(5, SECONDS));
+        long cost = NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(cost >= 100, "cost:" + cost);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void testCancel() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", ofMillis(1), 8);
+        AtomicInteger counter = new AtomicInteger();
+        Timeout timeout = timer.newTimeout(counter::incrementAndGet, 50, MILLISECONDS);
+        assertEquals(1, timer.pendingTimeouts());
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.pendingTimeouts());
+        sleepUninterruptibly(100, MILLISECONDS);
+        assertEquals(0, counter.get());
+        timer.close();
+        assertThrows(IllegalStateException.class, () -> timer.newTimeout(counter::incrementAndGet, 1, SECONDS));
+    }
+
+    @Test
+    void testMultiRounds() throws InterruptedException {
+        // 8 ticks per wheel, so it would wrap the wheel many times
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", ofMillis(1), 8);
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            long delay = i % 100;
+            long start = System.nanoTime();
+            timer.newTimeout(() -> {
+                if (System.nanoTime() - start < MILLISECONDS.toNanos(delay)) {
+                    early.incrementAndGet();
+                }
+                latch.countDown();
+            }, delay, MILLISECONDS);
+        }
+        assertTrue(latch.await(5, SECONDS));
+        assertEquals(0, early.get());
+        assertEquals(0, timer.pendingTimeouts());
+        timer.close();
+    }
+
+    @Test
+    void testCloseBeforeStart() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", ofMillis(1), 8);
+        timer.close();
+        assertThrows(IllegalStateException.class, () -> timer.newTimeout(() -> { }, 1, SECONDS));
+    }
+
+    @Test
+    void testHugeDelay() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", ofMillis(1), 8);
+        Timeout timeout = timer.newTimeout(() -> { }, Duration.ofSeconds(Long.MAX_VALUE));
+        assertFalse(timeout.isExpired());
+        assertTrue(timeout.cancel());
+        timer.close();
+    }
+
+    @Test
+    void testCloseShared() {
+        assertThrows(IllegalStateException.class, () -> HashedWheelTimer.sharedTimer().close());
+    }
+}
@@ -4,13 +4,18 @@ import static com.github.phantomthief.concurrent.MoreFutures.scheduleWithDynamic
 import static com.google.common.util.concurrent.MoreExecutors.shutdownAndAwaitTermination;
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
 import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.junit.jupiter.api.Test;
@@ -45,4 +50,34 @@ class MoreFuturesDynamicTest {
         assertEquals(3, run[0]);
         assertTrue(shutdownAndAwaitTermination(scheduled, 1, SECONDS));
     }
+
+    @Test
+    void testTimer() {
+        ExecutorService executor = newSingleThreadExecutor();
+        int[] i = {1};
+        int[] run = {0};
+        Future<?> future = scheduleWithDynamicDelay(executor, () -> {
+            Duration duration = ofSeconds(i[0]);
+            i[0]++;
+            return duration;
+        }, () -> {
+            logger.info("run...");
+            run[0]++;
+        });
+        sleepUninterruptibly(7, SECONDS);
+        assertEquals(3, run[0]);
+        future.cancel(false);
+        sleepUninterruptibly(5, SECONDS);
+        assertEquals(3, run[0]);
+        assertTrue(shutdownAndAwaitTermination(executor, 1, SECONDS));
+    }
+
+    @Test
+    void testTimerRejected() {
+        ExecutorService executor = newSingleThreadExecutor();
+        executor.shutdown();
+        Future<?> future = scheduleWithDynamicDelay(executor, Duration.ZERO, () -> ofSeconds(1));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
 }
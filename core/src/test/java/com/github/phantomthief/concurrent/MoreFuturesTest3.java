@@ -4,9 +4,15 @@ import static com.github.phantomthief.concurrent.MoreFutures.tryWait;
 import static com.google.common.base.Stopwatch.createStarted;
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static com.google.common.util.concurrent.Futures.immediateCancelledFuture;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 import java.util.Map;
@@ -16,6 +22,7 @@ import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * @author w.vela
@@ -37,4 +44,36 @@ class MoreFuturesTest3 {
             assertEquals(key + "", result.get(key));
         }
     }
+
+    @Test
+    void testMixed() {
+        List<Integer> keys = IntStream.range(0, 10000).boxed().collect(toList());
+        TryWaitUncheckedException e = assertThrows(TryWaitUncheckedException.class,
+                () -> tryWait(keys, 100, MILLISECONDS, it -> {
+                    switch (it % 4) {
+                        case 0:
+                            return immediateFuture(it + "");
+                        case 1:
+                            return immediateFailedFuture(new IllegalArgumentException(it + ""));
+                        case 2:
+                            return SettableFuture.create();
+                        default:
+                            return immediateCancelledFuture();
+                    }
+                }));
+        Map<Integer, String> success = e.getSuccess();
+        Map<Integer, Throwable> failed = e.getFailed();
+        assertEquals(2500, success.size());
+        assertEquals(2500, failed.size());
+        assertEquals(2500, e.getTimeout().size());
+        assertEquals(2500, e.getCancel().size());
+        assertEquals("4", success.get(4));
+        assertEquals("5", failed.get(5).getMessage());
+        assertTrue(e.getTimeout().containsKey(6));
+        assertTrue(e.getCancel().containsKey(7));
+        Map<Integer, Boolean> canceled = e.cancelAllTimeout(false);
+        assertEquals(2500, canceled.size());
+        assertTrue(canceled.get(6));
+        assertTrue(e.getMessage().startsWith("key:1, exception:class java.lang.IllegalArgumentException"));
+    }
 }
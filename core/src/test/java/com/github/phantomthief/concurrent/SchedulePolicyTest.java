@@ -0,0 +1,103 @@
+package com.github.phantomthief.concurrent;
+
+import static com.github.phantomthief.concurrent.MoreFutures.scheduleWithDynamicDelay;
+import static com.google.common.util.concurrent.MoreExecutors.shutdownAndAwaitTermination;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.concurrent.MoreFutures.Scheduled;
+
+class SchedulePolicyTest {
+
+    @Test
+    void testBackoff() {
+        SchedulePolicy policy = SchedulePolicy.newBuilder()
+                .delay(ofMillis(10))
+                .backoff(ofMillis(100), ofMillis(350))
+                .build();
+        boolean[] fail = {true};
+        Scheduled scheduled = policy.wrap(() -> {
+            if (fail[0]) {
+                throw new RuntimeException("expected");
+            }
+        });
+        assertEquals(ofMillis(100), scheduled.run());
+        assertEquals(ofMillis(200), scheduled.run());
+        assertEquals(ofMillis(350), scheduled.run());
+        assertEquals(ofMillis(350), scheduled.run());
+        fail[0] = false;
+        assertEquals(ofMillis(10), scheduled.run());
+    }
+
+    @Test
+    void testJitter() {
+        SchedulePolicy policy = SchedulePolicy.newBuilder()
+                .delay(ofSeconds(10))
+                .jitter(0.5)
+                .build();
+        Scheduled scheduled = policy.wrap(() -> { });
+        boolean diff = false;
+        Duration first = scheduled.run();
+        for (int i = 0; i < 100; i++) {
+            Duration delay = scheduled.run();
+            assertTrue(delay.compareTo(ofSeconds(5)) >= 0 && delay.compareTo(ofSeconds(15)) < 0);
+            diff |= !delay.equals(first);
+        }
+        assertTrue(diff);
+        assertThrows(IllegalArgumentException.class, () -> SchedulePolicy.newBuilder().jitter(1));
+    }
+
+    @Test
+    void testFixedRate() {
+        SchedulePolicy policy = SchedulePolicy.newBuilder()
+                .delay(ofMillis(100))
+                .fixedRate()
+                .build();
+        Scheduled scheduled = policy.wrap(() -> sleepUninterruptibly(130, MILLISECONDS));
+        Duration delay = scheduled.run();
+        // the missed period is skipped, so wait for the next slot
+        assertTrue(delay.compareTo(ofMillis(70)) <= 0, "delay:" + delay);
+    }
+
+    @Test
+    void testStop() {
+        SchedulePolicy policy = SchedulePolicy.newBuilder()
+                .delay(() -> null)
+                .build();
+        assertNull(policy.wrap(() -> { }).run());
+    }
+
+    @Test
+    void testSchedule() {
+        ScheduledExecutorService executor = newSingleThreadScheduledExecutor();
+        AtomicInteger run = new AtomicInteger();
+        SchedulePolicy policy = SchedulePolicy.newBuilder()
+                .initialDelay(Duration.ZERO)
+                .delay(ofMillis(100))
+                .jitter(0.1)
+                .build();
+        Future<?> future = scheduleWithDynamicDelay(executor, policy, run::incrementAndGet);
+        sleepUninterruptibly(1050, MILLISECONDS);
+        future.cancel(false);
+        int count = run.get();
+        assertTrue(count >= 8 && count <= 12, "count:" + count);
+        sleepUninterruptibly(300, MILLISECONDS);
+        assertEquals(count, run.get());
+        assertTrue(shutdownAndAwaitTermination(executor, 1, SECONDS));
+    }
+}
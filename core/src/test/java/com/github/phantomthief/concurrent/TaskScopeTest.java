@@ -0,0 +1,101 @@
+package com.github.phantomthief.concurrent;
+
+import static com.google.common.util.concurrent.MoreExecutors.shutdownAndAwaitTermination;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Stopwatch;
+
+class TaskScopeTest {
+
+    @Test
+    void testAllSuccess() {
+        try (TaskScope<Integer, String> scope = TaskScope.shutdownOnFailure(ofSeconds(5))) {
+            for (int i = 0; i < 10; i++) {
+                int j = i;
+                scope.fork(i, () -> j + "");
+            }
+            Map<Integer, String> result = scope.join();
+            assertEquals(10, result.size());
+            assertEquals("3", result.get(3));
+        }
+    }
+
+    @Test
+    void testShutdownOnFailure() {
+        ExecutorService executor = newFixedThreadPool(10);
+        AtomicInteger finished = new AtomicInteger();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (TaskScope<Integer, String> scope = TaskScope.shutdownOnFailure(executor, ofSeconds(10))) {
+            for (int i = 0; i < 5; i++) {
+                int j = i;
+                scope.fork(i, () -> {
+                    if (j == 0) {
+                        sleepUninterruptibly(100, MILLISECONDS);
+                        throw new IllegalStateException("failed");
+                    }
+                    Thread.sleep(5000);
+                    finished.incrementAndGet();
+                    return j + "";
+                });
+            }
+            TryWaitUncheckedException e = assertThrows(TryWaitUncheckedException.class, scope::join);
+            assertEquals(1, e.getFailed().size());
+            assertEquals(4, e.getCancel().size());
+            assertTrue(scope.isShutdown());
+        }
+        assertTrue(stopwatch.elapsed(SECONDS) < 2);
+        assertTrue(shutdownAndAwaitTermination(executor, 1, SECONDS));
+        assertEquals(0, finished.get());
+    }
+
+    @Test
+    void testShutdownOnSuccess() {
+        ExecutorService executor = newFixedThreadPool(10);
+        try (TaskScope<Integer, String> scope = TaskScope.shutdownOnSuccess(executor, ofSeconds(10))) {
+            for (int i = 0; i < 5; i++) {
+                int j = i;
+                scope.fork(i, () -> {
+                    Thread.sleep(j == 2 ? 50 : 5000);
+                    return j + "";
+                });
+            }
+            Map<Integer, String> result = scope.join();
+            assertEquals(1, result.size());
+            assertEquals("2", result.get(2));
+            assertTrue(scope.fork(10, () -> "10").isCancelled());
+        }
+        assertTrue(shutdownAndAwaitTermination(executor, 1, SECONDS));
+    }
+
+    @Test
+    void testDeadline() {
+        ExecutorService executor = newFixedThreadPool(10);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (TaskScope<Integer, String> scope = TaskScope.shutdownOnFailure(executor, ofMillis(200))) {
+            scope.fork(1, () -> "1");
+            scope.fork(2, () -> {
+                Thread.sleep(5000);
+                return "2";
+            });
+            TryWaitUncheckedException e = assertThrows(TryWaitUncheckedException.class, scope::join);
+            assertEquals("1", e.getSuccess().get(1));
+            assertTrue(e.getTimeout().containsKey(2));
+        }
+        assertTrue(stopwatch.elapsed(SECONDS) < 2);
+        assertTrue(shutdownAndAwaitTermination(executor, 1, SECONDS));
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.phantomthief.concurrent;
+
+import static com.github.phantomthief.concurrent.TimeoutListenableFuture.timeoutListenableFuture;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+class TimeoutListenableFutureTest {
+
+    @Test
+    void testSelfTiming() {
+        SettableFuture<String> delegate = SettableFuture.create();
+        AtomicInteger notified = new AtomicInteger();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(100), true)
+                .addTimeoutListener(notified::incrementAndGet);
+        sleepUninterruptibly(500, MILLISECONDS);
+        assertEquals(1, notified.get());
+        assertTrue(future.isDone());
+        assertTrue(delegate.isCancelled());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals(1, notified.get());
+    }
+
+    @Test
+    void testNotCancelDelegate() {
+        SettableFuture<String> delegate = SettableFuture.create();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(50), false);
+        sleepUninterruptibly(300, MILLISECONDS);
+        assertTrue(future.isDone());
+        assertFalse(delegate.isDone());
+    }
+
+    @Test
+    void testLateListener() {
+        SettableFuture<String> delegate = SettableFuture.create();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(50), true);
+        sleepUninterruptibly(300, MILLISECONDS);
+        AtomicInteger notified = new AtomicInteger();
+        future.addTimeoutListener(notified::incrementAndGet);
+        assertEquals(1, notified.get());
+        assertThrows(ExecutionException.class, () -> future.get(1, SECONDS));
+        assertEquals(1, notified.get());
+    }
+
+    @Test
+    void testCallerGetTimeout() {
+        SettableFuture<String> delegate = SettableFuture.create();
+        AtomicInteger notified = new AtomicInteger();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(300), true)
+                .addTimeoutListener(notified::incrementAndGet);
+        // the caller's own wait doesn't fire the listeners, only the timer does
+        assertThrows(TimeoutException.class, () -> future.get(10, MILLISECONDS));
+        assertEquals(0, notified.get());
+        sleepUninterruptibly(600, MILLISECONDS);
+        assertEquals(1, notified.get());
+        assertTrue(delegate.isCancelled());
+    }
+
+    @Test
+    void testCompleteInTime() throws Exception {
+        SettableFuture<String> delegate = SettableFuture.create();
+        AtomicInteger notified = new AtomicInteger();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(100), true)
+                .addTimeoutListener(notified::incrementAndGet);
+        delegate.set("ok");
+        assertEquals("ok", future.get());
+        sleepUninterruptibly(300, MILLISECONDS);
+        assertEquals(0, notified.get());
+    }
+
+    @Test
+    void testCancel() {
+        SettableFuture<String> delegate = SettableFuture.create();
+        TimeoutListenableFuture<String> future = timeoutListenableFuture(delegate, ofMillis(100), false);
+        future.cancel(false);
+        assertTrue(delegate.isCancelled());
+    }
+}
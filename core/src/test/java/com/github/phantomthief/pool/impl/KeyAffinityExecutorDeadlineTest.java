@@ -0,0 +1,72 @@
+package com.github.phantomthief.pool.impl;
+
+import static com.github.phantomthief.pool.KeyAffinityExecutor.newSerializingExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.pool.KeyAffinityExecutor;
+import com.github.phantomthief.util.Deadline;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+class KeyAffinityExecutorDeadlineTest {
+
+    @Test
+    void testPropagate() throws Exception {
+        KeyAffinityExecutor<Integer> keyExecutor = newSerializingExecutor(2, 20, "test");
+        try {
+            Deadline deadline = Deadline.after(ofSeconds(1));
+            ListenableFuture<Deadline> future = deadline.supply(() -> keyExecutor.submit(1, Deadline::current));
+            assertSame(deadline, future.get());
+            assertNull(keyExecutor.submit(1, Deadline::current).get());
+
+            CountDownLatch latch = new CountDownLatch(1);
+            Deadline[] captured = new Deadline[1];
+            deadline.run(() -> keyExecutor.executeEx(1, () -> {
+                captured[0] = Deadline.current();
+                latch.countDown();
+            }));
+            latch.await();
+            assertSame(deadline, captured[0]);
+        } finally {
+            keyExecutor.close();
+        }
+    }
+
+    @Test
+    void testSkipExpired() throws Exception {
+        KeyAffinityExecutor<Integer> keyExecutor = newSerializingExecutor(2, 20, "test");
+        try {
+            AtomicInteger ran = new AtomicInteger();
+            ListenableFuture<?>[] futures = Deadline.after(ofMillis(50)).supply(() -> {
+                // block the key, so the following tasks start after the deadline
+                ListenableFuture<?> blocking = keyExecutor.submit(1, () -> {
+                    sleepUninterruptibly(100, MILLISECONDS);
+                    return null;
+                });
+                keyExecutor.executeEx(1, ran::incrementAndGet);
+                ListenableFuture<Integer> skipped = keyExecutor.submit(1, ran::incrementAndGet);
+                return new ListenableFuture<?>[] { blocking, skipped };
+            });
+            futures[0].get();
+            ExecutionException e = assertThrows(ExecutionException.class, futures[1]::get);
+            assertTrue(e.getCause() instanceof UncheckedTimeoutException);
+            assertEquals(0, ran.get());
+        } finally {
+            keyExecutor.close();
+        }
+    }
+}
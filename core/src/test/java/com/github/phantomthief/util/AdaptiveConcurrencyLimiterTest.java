@@ -0,0 +1,60 @@
+package com.github.phantomthief.util;
+
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void test() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.newBuilder()
+                .initialLimit(2)
+                .limitRange(1, 4)
+                .latencyThreshold(ofMillis(100))
+                .backoffRatio(0.5)
+                .build();
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getSkipCountAndClear());
+
+        // fast responses at high utilization grow the limit
+        limiter.onSuccess(MILLISECONDS.toNanos(1));
+        assertEquals(3, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(MILLISECONDS.toNanos(1));
+        limiter.onSuccess(MILLISECONDS.toNanos(1));
+        assertEquals(4, limiter.getLimit()); // capped
+        limiter.onSuccess(MILLISECONDS.toNanos(1)); // low utilization, not grow
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        // slow responses and drops shrink it
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(MILLISECONDS.toNanos(200));
+        assertEquals(2, limiter.getLimit());
+        limiter.onDropped();
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void testBuilder() {
+        assertThrows(NullPointerException.class, () -> AdaptiveConcurrencyLimiter.newBuilder().build());
+        assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.newBuilder().limitRange(2, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.newBuilder().backoffRatio(1));
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.slf4j.spi.LocationAwareLogger.INFO_INT;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class AsyncRateLogDispatcherTest {
+
+    @Test
+    void test() throws InterruptedException {
+        Logger logger = (Logger) LoggerFactory.getLogger("asyncTest");
+        CallerAppender appender = new CallerAppender();
+        appender.start();
+        logger.addAppender(appender);
+
+        AsyncRateLogDispatcher dispatcher = new AsyncRateLogDispatcher(2, Duration.ofSeconds(10), 1);
+        String caller = Thread.currentThread().getName();
+        StringBuilder mutable = new StringBuilder("x");
+        assertTrue(dispatcher.offer(logger, null, INFO_INT, RateLogger.PREFIX + "a:{}",
+                new Object[] {3L, mutable}, null));
+        mutable.append("y"); // formatted before queued
+        assertTrue(dispatcher.offer(logger, null, INFO_INT, RateLogger.PREFIX + "b:{}", new Object[] {5L, 2}, null));
+        for (int i = 0; i < 3; i++) {
+            dispatcher.suppressed(logger, "a:{}");
+        }
+        for (int i = 0; i < 5; i++) {
+            dispatcher.suppressed(logger, "b:{}");
+        }
+        // may be drained in between, so fill until full
+        boolean dropped = false;
+        for (int i = 0; i < 1000 && !dropped; i++) {
+            dropped = !dispatcher.offer(logger, null, INFO_INT, RateLogger.PREFIX + "c:{}", new Object[] {0L, 1}, null);
+        }
+        assertTrue(dropped);
+        dispatcher.close();
+
+        List<ILoggingEvent> events = appender.list;
+        assertEquals("[IGNORED=3]a:x", events.get(0).getFormattedMessage());
+        assertEquals("[IGNORED=5]b:2", events.get(1).getFormattedMessage());
+        assertFalse(events.stream().anyMatch(it -> it.getThreadName().equals(caller)));
+        // no bogus location from the drain thread
+        assertEquals(0, appender.callerData.get(0).length);
+        List<String> summaries = events.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .filter(it -> it.startsWith("[RateLogger]"))
+                .collect(Collectors.toList());
+        assertEquals(1, summaries.size());
+        assertTrue(summaries.get(0).startsWith("[RateLogger] 2 messages were suppressed 8 times "), summaries.get(0));
+        assertTrue(summaries.get(0).contains("5 x b:{}"), summaries.get(0));
+        assertFalse(summaries.get(0).contains("a:{}"), summaries.get(0)); // top 1
+
+        // emitted on the caller thread after closed
+        int size = events.size();
+        assertTrue(dispatcher.offer(logger, null, INFO_INT, "d:{}", new Object[] {1}, null));
+        assertEquals(size + 1, events.size());
+        assertEquals("d:1", events.get(size).getFormattedMessage());
+        assertEquals(caller, events.get(size).getThreadName());
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void testRateLogger() {
+        Logger logger = (Logger) LoggerFactory.getLogger("asyncTest2");
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        RateLogger rateLogger = RateLogger.asyncPerMessageRateLogger(logger, 1);
+        for (int i = 0; i < 10; i++) {
+            rateLogger.info("test1:{}", i);
+            rateLogger.atWarn().log("test2:{}", () -> "lazy");
+        }
+        sleepUninterruptibly(200, MILLISECONDS);
+        List<String> messages = appender.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .collect(Collectors.toList());
+        assertEquals(2, messages.size(), messages::toString);
+        assertTrue(messages.contains("[IGNORED=0]test1:0"));
+        assertTrue(messages.contains("[IGNORED=0]test2:lazy"));
+        logger.detachAppender(appender);
+    }
+
+    private static class CallerAppender extends ListAppender<ILoggingEvent> {
+
+        private final List<StackTraceElement[]> callerData = new ArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            // caller data is computed lazily on the appending thread
+            callerData.add(event.getCallerData());
+            super.append(event);
+        }
+    }
+}
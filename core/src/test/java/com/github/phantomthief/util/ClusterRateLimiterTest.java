@@ -0,0 +1,135 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ClusterRateLimiterTest {
+
+    @Test
+    void testGlobalQuota() {
+        RateLimitCoordinator coordinator = new InMemoryRateLimitCoordinator(
+                resource -> SimpleRateLimiter.create(0.001, 100));
+        ClusterRateLimiter limiter1 = newLimiter(coordinator, "test");
+        ClusterRateLimiter limiter2 = newLimiter(coordinator, "test");
+        ClusterRateLimiter other = newLimiter(coordinator, "other");
+        int acquired = 0;
+        for (int i = 0; i < 200; i++) {
+            if (limiter1.tryAcquire()) {
+                acquired++;
+            }
+            if (limiter2.tryAcquire()) {
+                acquired++;
+            }
+        }
+        assertEquals(100, acquired);
+        assertTrue(other.tryAcquire());
+        assertEquals(300, limiter1.getSkipCountAndClear() + limiter2.getSkipCountAndClear());
+    }
+
+    @Test
+    void testLeaseExpire() {
+        RateLimitCoordinator coordinator = new InMemoryRateLimitCoordinator(
+                resource -> SimpleRateLimiter.create(0.001, 10));
+        ClusterRateLimiter limiter = ClusterRateLimiter.newBuilder()
+                .coordinator(coordinator)
+                .resource("test")
+                .batchSize(10)
+                .refillThreshold(0)
+                .leaseDuration(Duration.ofMillis(100))
+                .executor(directExecutor())
+                .build();
+        assertEquals(10, limiter.getLocalPermits());
+        assertTrue(limiter.tryAcquire(3));
+        sleepUninterruptibly(150, MILLISECONDS);
+        assertEquals(0, limiter.getLocalPermits());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void testCoordinatorFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        ClusterRateLimiter limiter = ClusterRateLimiter.newBuilder()
+                .coordinator((resource, permits) -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new IllegalStateException("unavailable");
+                    }
+                    return permits;
+                })
+                .resource("test")
+                .batchSize(5)
+                .backoff(Duration.ofMillis(100), Duration.ofSeconds(1))
+                .executor(directExecutor())
+                .build();
+        // the first lease failed, requests within the backoff don't call the coordinator
+        assertFalse(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, calls.get());
+        sleepUninterruptibly(150, MILLISECONDS);
+        // this request triggers another lease but is rejected
+        assertFalse(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testExhaustedBackoff() {
+        AtomicInteger calls = new AtomicInteger();
+        ClusterRateLimiter limiter = ClusterRateLimiter.newBuilder()
+                .coordinator((resource, permits) -> {
+                    calls.incrementAndGet();
+                    return 0;
+                })
+                .resource("test")
+                .executor(directExecutor())
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(limiter.tryAcquire());
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testRefreshAhead() {
+        AtomicInteger calls = new AtomicInteger();
+        ClusterRateLimiter limiter = ClusterRateLimiter.newBuilder()
+                .coordinator((resource, permits) -> {
+                    calls.incrementAndGet();
+                    return permits;
+                })
+                .resource("test")
+                .batchSize(10)
+                .refillThreshold(0)
+                .leaseDuration(Duration.ofMillis(200))
+                .executor(directExecutor())
+                .build();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, calls.get());
+        sleepUninterruptibly(170, MILLISECONDS);
+        // past 4/5 of the lease, renewed and topped up to the batch size
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, calls.get());
+        assertEquals(10, limiter.getLocalPermits());
+        sleepUninterruptibly(100, MILLISECONDS);
+        // the first lease would have expired by now
+        assertEquals(10, limiter.getLocalPermits());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    private static ClusterRateLimiter newLimiter(RateLimitCoordinator coordinator, String resource) {
+        return ClusterRateLimiter.newBuilder()
+                .coordinator(coordinator)
+                .resource(resource)
+                .batchSize(10)
+                .executor(directExecutor())
+                .build();
+    }
+}
@@ -8,19 +8,25 @@ import static java.util.Arrays.stream;
 import static java.util.Collections.synchronizedSet;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.joining;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.github.phantomthief.util.DeadlineChecker.SlowCallSite;
+
 /**
  * @author w.vela
  * Created on 2017-02-24.
@@ -46,7 +52,7 @@ class DeadlineCheckerTest {
         });
         System.out.println("end.");
 
-        assertTrue(helper.getRunning().isEmpty());
+        assertEquals(0, helper.getRunningCount());
     }
 
     @Test
@@ -72,7 +78,7 @@ class DeadlineCheckerTest {
         shutdownAndAwaitTermination(executor, 1, DAYS);
         assertFalse(slowed.isEmpty());
         slowed.forEach(slow -> assertTrue(slow < 5));
-        assertTrue(helper.getRunning().isEmpty());
+        assertEquals(0, helper.getRunningCount());
     }
 
     @Test
@@ -90,6 +96,72 @@ class DeadlineCheckerTest {
         });
         System.out.println("end.");
 
-        assertTrue(helper.getRunning().isEmpty());
+        assertEquals(0, helper.getRunningCount());
+    }
+
+    @Test
+    void testDedicatedTimer() {
+        Set<Thread> slowed = synchronizedSet(new HashSet<>());
+        try (DeadlineChecker checker = DeadlineChecker.deadlineWithMinTicker(ofMillis(1))) {
+            checker.runWithDeadline(() -> sleepUninterruptibly(50, MILLISECONDS), ofMillis(5), slowed::add);
+            checker.runWithDeadline(() -> { }, ofMillis(5), slowed::add);
+            sleepUninterruptibly(20, MILLISECONDS);
+            assertEquals(1, slowed.size());
+            assertEquals(0, checker.getRunningCount());
+        }
+    }
+
+    @Test
+    void testReuseAfterClose() {
+        Set<Thread> slowed = synchronizedSet(new HashSet<>());
+        DeadlineChecker checker = DeadlineChecker.deadlineWithMinTicker(ofMillis(1));
+        checker.runWithDeadline(() -> { }, ofMillis(5), slowed::add);
+        checker.close();
+        // the dedicated timer is re-created, and the callback still works
+        checker.runWithDeadline(() -> sleepUninterruptibly(50, MILLISECONDS), ofMillis(5), slowed::add);
+        assertEquals(1, slowed.size());
+        checker.close();
+    }
+
+    @Test
+    void testContext() {
+        helper.runWithDeadline(() -> {
+            Deadline outer = Deadline.current();
+            assertTrue(outer.hasTimeFor(ofMillis(500)));
+            helper.runWithDeadline(() -> {
+                Deadline inner = Deadline.current();
+                assertEquals(outer.deadlineNanos(), inner.deadlineNanos());
+                assertFalse(inner.hasTimeFor(ofSeconds(2)));
+            }, ofSeconds(5), t -> { });
+        }, ofSeconds(1), t -> { });
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void testWatchdog() {
+        DeadlineChecker watchdog = DeadlineChecker.deadlineWithMinTicker(ofMillis(10), 1000);
+        for (int i = 0; i < 3; i++) {
+            watchdog.runWithWatchdog(() -> sleepUninterruptibly(60, MILLISECONDS), ofMillis(10));
+            int result = watchdog.supplyWithWatchdog(() -> 1, ofSeconds(1));
+            assertEquals(1, result);
+        }
+        List<SlowCallSite> sites = watchdog.getSlowCallSites(10);
+        assertEquals(1, sites.size());
+        SlowCallSite site = sites.get(0);
+        assertEquals(DeadlineCheckerTest.class.getName(), site.getCallSite().getClassName());
+        assertEquals("testWatchdog", site.getCallSite().getMethodName());
+        assertEquals(3, site.getExceededCount());
+        assertTrue(site.getTotalOverrunNanos() >= MILLISECONDS.toNanos(3 * 40));
+        assertTrue(site.getMaxOverrunNanos() >= MILLISECONDS.toNanos(40));
+        assertNotNull(site.getLastStack());
+        assertTrue(stream(site.getLastStack()).anyMatch(it -> it.getMethodName().equals("testWatchdog")));
+        assertEquals(0, watchdog.getRunningCount());
+
+        watchdog.resetSlowCallSites();
+        assertTrue(watchdog.getSlowCallSites(10).isEmpty());
+        // the tasks finished in time are not recorded
+        watchdog.runWithWatchdog(() -> { }, ofSeconds(1));
+        assertTrue(watchdog.getSlowCallSites(10).isEmpty());
+        watchdog.close();
     }
-}
\ No newline at end of file
+}
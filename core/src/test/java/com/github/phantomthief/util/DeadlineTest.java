@@ -0,0 +1,207 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.concurrent.MoreFutures.tryWait;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.concurrent.TryWaitUncheckedException;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+class DeadlineTest {
+
+    @Test
+    void testNested() {
+        assertNull(Deadline.current());
+        Deadline outer = Deadline.after(ofMillis(200));
+        outer.run(() -> {
+            assertSame(outer, Deadline.current());
+            Deadline inner = Deadline.after(ofSeconds(10));
+            assertTrue(inner.remainingNanos() <= MILLISECONDS.toNanos(200));
+            inner.run(() -> {
+                assertSame(inner, Deadline.current());
+                assertFalse(inner.hasTimeFor(ofSeconds(1)));
+                assertTrue(inner.hasTimeFor(ofMillis(10)));
+            });
+            assertSame(outer, Deadline.current());
+        });
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void testExpire() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger skipped = new AtomicInteger();
+        Deadline.after(ofMillis(50)).run(() -> {
+            Deadline deadline = Deadline.current();
+            assertNotNull(deadline);
+            deadline.onExpired(() -> cancelled.set(true));
+            sleepUninterruptibly(100, MILLISECONDS);
+            assertTrue(deadline.isExpired());
+            assertEquals(0, deadline.remainingNanos());
+            if (!deadline.hasTimeFor(ofMillis(1))) {
+                skipped.incrementAndGet();
+            }
+            assertThrows(UncheckedTimeoutException.class, deadline::checkNotExpired);
+            // already expired, run immediately
+            deadline.onExpired(skipped::incrementAndGet);
+        });
+        assertTrue(cancelled.get());
+        assertEquals(2, skipped.get());
+    }
+
+    @Test
+    void testRelease() {
+        AtomicBoolean called = new AtomicBoolean();
+        Deadline.after(ofMillis(30)).run(() -> Deadline.current().onExpired(() -> called.set(true)));
+        sleepUninterruptibly(100, MILLISECONDS);
+        assertFalse(called.get());
+
+        Deadline deadline = Deadline.after(ofSeconds(10));
+        deadline.run(() -> { });
+        // no scope is running, the hook would never be triggered
+        assertThrows(IllegalStateException.class, () -> deadline.onExpired(() -> called.set(true)));
+    }
+
+    @Test
+    void testChildHookAfterOwnerReturned() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicBoolean called = new AtomicBoolean();
+            CountDownLatch ownerReturned = new CountDownLatch(1);
+            Deadline deadline = Deadline.after(ofMillis(100));
+            Future<?> child = deadline.supply(() -> executor.submit(Deadline.propagate(() -> {
+                ownerReturned.await();
+                Deadline.current().onExpired(() -> called.set(true));
+                sleepUninterruptibly(200, MILLISECONDS);
+                return null;
+            })));
+            ownerReturned.countDown();
+            child.get();
+            assertTrue(called.get());
+            // already expired, run immediately
+            AtomicBoolean late = new AtomicBoolean();
+            deadline.onExpired(() -> late.set(true));
+            assertTrue(late.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testChildHookBeforeOwnerReturned() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicBoolean called = new AtomicBoolean();
+            CountDownLatch registered = new CountDownLatch(1);
+            Future<?> child = Deadline.after(ofMillis(100)).supply(() -> {
+                Future<?> future = executor.submit(Deadline.propagate(() -> {
+                    Deadline.current().onExpired(() -> called.set(true));
+                    registered.countDown();
+                    sleepUninterruptibly(200, MILLISECONDS);
+                    return null;
+                }));
+                registered.await();
+                return future;
+            });
+            // kept since the child is still running
+            child.get();
+            assertTrue(called.get());
+
+            AtomicBoolean released = new AtomicBoolean();
+            Deadline.after(ofMillis(50)).supply(() -> executor.submit(Deadline.propagate(() -> {
+                Deadline.current().onExpired(() -> released.set(true));
+                return null;
+            })).get());
+            sleepUninterruptibly(150, MILLISECONDS);
+            assertFalse(released.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testPropagate() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Callable<Deadline> plain = Deadline::current;
+            assertSame(plain, Deadline.propagate(plain));
+
+            Deadline deadline = Deadline.after(ofSeconds(1));
+            Future<Deadline> future = deadline.supply(() -> executor.submit(Deadline.propagate(plain)));
+            assertSame(deadline, future.get());
+            assertNull(executor.submit(plain).get());
+
+            AtomicInteger ran = new AtomicInteger();
+            Deadline.after(ofMillis(20)).run(() -> {
+                Callable<Integer> callable = Deadline.propagate(ran::incrementAndGet);
+                ThrowableRunnable<RuntimeException> runnable = Deadline.propagate(
+                        (ThrowableRunnable<RuntimeException>) ran::incrementAndGet);
+                sleepUninterruptibly(50, MILLISECONDS);
+                ExecutionException e = assertThrows(ExecutionException.class,
+                        () -> executor.submit(callable).get());
+                assertTrue(e.getCause() instanceof UncheckedTimeoutException);
+                executor.submit(runnable::run).get();
+            });
+            assertEquals(0, ran.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testTryWait() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            AtomicInteger called = new AtomicInteger();
+            long start = System.nanoTime();
+            TryWaitUncheckedException e = assertThrows(TryWaitUncheckedException.class,
+                    () -> Deadline.after(ofMillis(300)).run(() -> tryWait(asList(1, 2, 3), 10, SECONDS, i -> {
+                        called.incrementAndGet();
+                        return executor.submit(() -> {
+                            sleepUninterruptibly(i == 1 ? 0 : 2000, MILLISECONDS);
+                            return i;
+                        });
+                    })));
+            assertTrue(System.nanoTime() - start < SECONDS.toNanos(2));
+            assertEquals(3, called.get());
+            assertEquals(singletonMap(1, 1), e.getSuccess());
+            assertEquals(2, e.getTimeout().size());
+
+            TryWaitUncheckedException expired = assertThrows(TryWaitUncheckedException.class,
+                    () -> Deadline.after(ofMillis(10)).run(() -> {
+                        sleepUninterruptibly(30, MILLISECONDS);
+                        tryWait(asList(1, 2), 10, SECONDS, i -> {
+                            called.incrementAndGet();
+                            return executor.submit(() -> i);
+                        });
+                    }));
+            assertEquals(3, called.get());
+            assertEquals(2, expired.getTimeout().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
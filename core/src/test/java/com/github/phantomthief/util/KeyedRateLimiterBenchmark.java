@@ -0,0 +1,47 @@
+package com.github.phantomthief.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 1M active keys, uniformly accessed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class KeyedRateLimiterBenchmark {
+
+    private static final int KEYS = 1 << 20;
+    private static final Long[] KEY_ARRAY = new Long[KEYS];
+    private static final KeyedRateLimiter<Long> LIMITER = KeyedRateLimiter.newBuilder()
+            .permitsPerSecond(100)
+            .maxBurst(10)
+            .maximumSize(KEYS)
+            .build();
+
+    static {
+        for (int i = 0; i < KEYS; i++) {
+            KEY_ARRAY[i] = (long) i;
+        }
+    }
+
+    @Benchmark
+    public static boolean tryAcquire() {
+        return LIMITER.tryAcquire(KEY_ARRAY[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class KeyedRateLimiterTest {
+
+    @Test
+    void test() {
+        KeyedRateLimiter<String> limiter = KeyedRateLimiter.newBuilder()
+                .permitsPerSecond(1)
+                .maxBurst(3)
+                .build();
+        assertTrue(limiter.tryAcquire("a", 3));
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        assertTrue(limiter.tryAcquire("b", 2));
+        assertFalse(limiter.tryAcquire("b"));
+        assertFalse(limiter.tryAcquire("c", 4));
+        assertEquals(3, limiter.getSkipCountAndClear());
+        assertEquals(2, limiter.size());
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> KeyedRateLimiter.newBuilder().build());
+    }
+
+    @Test
+    void testRefill() {
+        KeyedRateLimiter<Integer> limiter = KeyedRateLimiter.newBuilder()
+                .period(Duration.ofMillis(100))
+                .build();
+        assertTrue(limiter.tryAcquire(1));
+        assertFalse(limiter.tryAcquire(1));
+        sleepUninterruptibly(150, MILLISECONDS);
+        assertTrue(limiter.tryAcquire(1));
+        assertFalse(limiter.tryAcquire(1));
+    }
+
+    @Test
+    void testBounded() {
+        KeyedRateLimiter<Integer> limiter = KeyedRateLimiter.newBuilder()
+                .permitsPerSecond(0.001)
+                .maximumSize(1000)
+                .concurrencyLevel(4)
+                .build();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(limiter.tryAcquire(i));
+        }
+        assertTrue(limiter.size() <= 1000, "size:" + limiter.size());
+        // the most recent keys are still limited
+        assertFalse(limiter.tryAcquire(99_999));
+    }
+
+    @Test
+    void testEvictToLowWater() {
+        KeyedRateLimiter<Integer> limiter = KeyedRateLimiter.newBuilder()
+                .permitsPerSecond(0.001)
+                .maximumSize(1000)
+                .concurrencyLevel(1)
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(i));
+        }
+        assertEquals(1000, limiter.size());
+        assertTrue(limiter.tryAcquire(1000));
+        // evicted down to 3/4 at once, so the next inserts don't rescan
+        assertEquals(751, limiter.size());
+        for (int i = 1001; i < 1249; i++) {
+            assertTrue(limiter.tryAcquire(i));
+        }
+        assertEquals(999, limiter.size());
+        // survivors are still reachable after the in-place removal
+        for (int i = 250; i < 1249; i++) {
+            assertFalse(limiter.tryAcquire(i), "key:" + i);
+        }
+        assertEquals(999, limiter.size());
+    }
+
+    @Test
+    void testIdleEviction() {
+        KeyedRateLimiter<Integer> limiter = KeyedRateLimiter.newBuilder()
+                .period(Duration.ofMillis(10))
+                .concurrencyLevel(1)
+                .build();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(limiter.tryAcquire(i));
+        }
+        sleepUninterruptibly(50, MILLISECONDS);
+        for (int i = 10_000; i < 20_000; i++) {
+            assertTrue(limiter.tryAcquire(i));
+        }
+        // idle keys are dropped on growth instead of doubling the table
+        assertTrue(limiter.size() < 20_000, "size:" + limiter.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.phantomthief.util;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compare the implementations of {@link Limiter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class LimiterBenchmark {
+
+    private static final Limiter SIMPLE = SimpleRateLimiter.create(10000.0D);
+    private static final Limiter TOKEN_BUCKET = SimpleRateLimiter.create(10000.0D, 100);
+    private static final Limiter SLIDING_WINDOW = SlidingWindowRateLimiter.create(10000, ofSeconds(1));
+    private static final Limiter ADAPTIVE = AdaptiveConcurrencyLimiter.newBuilder()
+            .latencyThreshold(ofMillis(100))
+            .build();
+
+    @Benchmark
+    public static boolean simple() {
+        return SIMPLE.tryAcquire();
+    }
+
+    @Benchmark
+    public static boolean tokenBucket() {
+        return TOKEN_BUCKET.tryAcquire();
+    }
+
+    @Benchmark
+    public static boolean slidingWindow() {
+        return SLIDING_WINDOW.tryAcquire();
+    }
+
+    @Benchmark
+    public static boolean adaptiveConcurrency() {
+        if (ADAPTIVE.tryAcquire()) {
+            ADAPTIVE.onSuccess(1000L);
+            return true;
+        }
+        return false;
+    }
+}
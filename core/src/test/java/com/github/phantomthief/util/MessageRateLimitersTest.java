@@ -0,0 +1,30 @@
+package com.github.phantomthief.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class MessageRateLimitersTest {
+
+    @Test
+    void test() {
+        SimpleRateLimiter fallback = SimpleRateLimiter.create(1);
+        MessageRateLimiters limiters = new MessageRateLimiters(100, () -> SimpleRateLimiter.create(1),
+                fallback);
+        SimpleRateLimiter first = limiters.get("msg:{}");
+        assertSame(first, limiters.get("msg:{}"));
+        // equal but not identical format
+        assertSame(first, limiters.get(new StringBuilder("msg:").append("{}").toString()));
+        assertNotSame(first, limiters.get("other:{}"));
+
+        for (int i = 0; i < 1000; i++) {
+            limiters.get("msg" + i);
+        }
+        assertEquals(100, limiters.size());
+        assertSame(first, limiters.get("msg:{}"));
+        assertSame(fallback, limiters.get("new message"));
+        assertSame(limiters.get("msg0"), limiters.get("msg0"));
+    }
+}
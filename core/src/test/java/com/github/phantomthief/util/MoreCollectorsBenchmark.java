@@ -0,0 +1,74 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.MoreCollectors.groupingByInt;
+import static com.github.phantomthief.util.MoreCollectors.groupingByIntConcurrent;
+import static com.github.phantomthief.util.MoreCollectors.toConcurrentObjectIntCounts;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingByConcurrent;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+
+/**
+ * Parallel grouping of 1M elements, compared with {@link java.util.stream.Collectors#groupingByConcurrent}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class MoreCollectorsBenchmark {
+
+    private static final int SIZE = 1 << 20;
+
+    @Param({"1024", "1048576"})
+    private int keys;
+
+    private Integer[] data;
+
+    @Setup
+    public void setup() {
+        data = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = ThreadLocalRandom.current().nextInt(keys);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByConcurrentJdk() {
+        return Arrays.stream(data).parallel().collect(groupingByConcurrent(i -> i, counting()));
+    }
+
+    @Benchmark
+    public IntObjectHashMap<Long> groupingByIntParallel() {
+        return Arrays.stream(data).parallel().collect(groupingByInt(i -> i, counting()));
+    }
+
+    @Benchmark
+    public IntObjectHashMap<Long> groupingByIntConcurrentParallel() {
+        return Arrays.stream(data).parallel().collect(groupingByIntConcurrent(i -> i, counting()));
+    }
+
+    @Benchmark
+    public ObjectIntHashMap<Integer> toConcurrentObjectIntCountsParallel() {
+        return Arrays.stream(data).parallel().collect(toConcurrentObjectIntCounts(i -> i));
+    }
+}
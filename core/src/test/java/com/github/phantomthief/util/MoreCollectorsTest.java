@@ -1,7 +1,14 @@
 package com.github.phantomthief.util;
 
 import static com.github.phantomthief.util.MoreCollectors.groupingByAllowNullKey;
+import static com.github.phantomthief.util.MoreCollectors.groupingByInt;
+import static com.github.phantomthief.util.MoreCollectors.groupingByIntConcurrent;
+import static com.github.phantomthief.util.MoreCollectors.toConcurrentIntMap;
+import static com.github.phantomthief.util.MoreCollectors.toConcurrentObjectIntCounts;
+import static com.github.phantomthief.util.MoreCollectors.toLongMap;
+import static com.github.phantomthief.util.MoreCollectors.toObjectIntCounts;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -12,10 +19,18 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+
 /**
  * MoreCollectorsTest
  * <p>
@@ -63,6 +78,81 @@ class MoreCollectorsTest {
                         .collect(groupingByAllowNullKey(TestEnum2::getValue, Hashtable::new, toList())));
     }
 
+    @Test
+    void primitiveStreamTest() {
+        assertEquals(1000, MoreCollectors.toIntList(IntStream.range(0, 1000).parallel()).size());
+        assertEquals(10, MoreCollectors.toIntSet(IntStream.range(0, 1000).map(i -> i % 10)).size());
+        assertEquals(1000, MoreCollectors.toLongList(LongStream.range(0, 1000).parallel()).size());
+        assertEquals(10, MoreCollectors.toLongSet(LongStream.range(0, 1000).map(i -> i % 10)).size());
+
+        IntIntHashMap intCounts = MoreCollectors.toIntCounts(IntStream.range(0, 1000).parallel().map(i -> i % 10));
+        assertEquals(10, intCounts.size());
+        assertEquals(100, intCounts.get(3));
+        LongIntHashMap longCounts = MoreCollectors
+                .toLongCounts(LongStream.range(0, 1000).parallel().map(i -> i % 10));
+        assertEquals(10, longCounts.size());
+        assertEquals(100, longCounts.get(3L));
+    }
+
+    @Test
+    void toLongMapTest() {
+        LongObjectHashMap<String> map = LongStream.range(0, 100).boxed().parallel()
+                .collect(toLongMap(i -> i, String::valueOf));
+        assertEquals(100, map.size());
+        assertEquals("42", map.get(42L));
+    }
+
+    @Test
+    void toObjectIntCountsTest() {
+        ObjectIntHashMap<String> counts = IntStream.range(0, 1000).boxed().parallel()
+                .collect(toObjectIntCounts(i -> "k" + i % 10));
+        assertEquals(10, counts.size());
+        assertEquals(100, counts.get("k3"));
+
+        ObjectIntHashMap<Integer> weighted = Stream.of(TestEnum2.values())
+                .collect(toObjectIntCounts(TestEnum2::getValue, e -> 2));
+        assertEquals(4, weighted.get(0));
+        assertEquals(2, weighted.get(null));
+    }
+
+    @Test
+    void groupingByIntTest() {
+        IntObjectHashMap<List<Integer>> groups = IntStream.range(0, 1000).boxed().parallel()
+                .collect(groupingByInt(i -> i % 10));
+        assertEquals(10, groups.size());
+        assertEquals(100, groups.get(3).size());
+
+        IntObjectHashMap<Long> counts = IntStream.range(0, 1000).boxed().parallel()
+                .collect(groupingByInt(i -> i % 10, counting()));
+        assertEquals(10, counts.size());
+        assertEquals(100L, counts.get(7).longValue());
+    }
+
+    @Test
+    void concurrentTest() {
+        IntObjectHashMap<String> map = IntStream.range(0, 10000).boxed().parallel()
+                .collect(toConcurrentIntMap(i -> i, String::valueOf));
+        assertEquals(10000, map.size());
+        assertEquals("42", map.get(42));
+
+        ObjectIntHashMap<String> counts = IntStream.range(0, 10000).boxed().parallel()
+                .collect(toConcurrentObjectIntCounts(i -> "k" + i % 100));
+        assertEquals(100, counts.size());
+        assertEquals(100, counts.get("k3"));
+        assertEquals(2, Stream.of(TestEnum2.values())
+                .collect(toConcurrentObjectIntCounts(TestEnum2::getValue)).get(0));
+
+        IntObjectHashMap<List<Integer>> groups = IntStream.range(0, 10000).boxed().parallel()
+                .collect(groupingByIntConcurrent(i -> i % 100));
+        assertEquals(100, groups.size());
+        assertEquals(100, groups.get(3).size());
+
+        IntObjectHashMap<Long> sequential = IntStream.range(0, 10000).boxed()
+                .collect(groupingByIntConcurrent(i -> i % 100, counting()));
+        assertEquals(100, sequential.size());
+        assertEquals(100L, sequential.get(7).longValue());
+    }
+
     private enum TestEnum1 {
         A(1),
         B(2),
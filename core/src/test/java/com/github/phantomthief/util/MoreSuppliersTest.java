@@ -1,17 +1,38 @@
 package com.github.phantomthief.util;
 
+import static com.github.phantomthief.util.MoreSuppliers.asyncLazyEx;
 import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.github.phantomthief.util.MoreSuppliers.lazyDouble;
 import static com.github.phantomthief.util.MoreSuppliers.lazyEx;
+import static com.github.phantomthief.util.MoreSuppliers.lazyInt;
+import static com.github.phantomthief.util.MoreSuppliers.lazyLong;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import com.github.phantomthief.util.MoreSuppliers.AsyncSupplier;
 import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
 import com.github.phantomthief.util.MoreSuppliers.CloseableThrowableSupplier;
+import com.github.phantomthief.util.MoreSuppliers.LazyDoubleSupplier;
+import com.github.phantomthief.util.MoreSuppliers.LazyIntSupplier;
+import com.github.phantomthief.util.MoreSuppliers.LazyLongSupplier;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * @author w.vela
@@ -100,4 +121,87 @@ class MoreSuppliersTest {
         Assertions.assertThrows(TimeoutException.class, supplier::get);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void testAsyncWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AsyncSupplier<String> supplier = asyncLazyEx(() -> {
+                awaitUninterruptibly(latch);
+                return "test";
+            }, () -> "pending", executor);
+            assertEquals("pending", supplier.get());
+            ListenableFuture<String> future = supplier.getFuture();
+            assertFalse(future.isDone());
+            latch.countDown();
+            assertEquals("test", future.get(1, SECONDS));
+            assertEquals("test", supplier.get());
+            assertSame(future, supplier.getFuture());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncFailed() throws Exception {
+        int[] counter = { 0 };
+        AsyncSupplier<String> supplier = asyncLazyEx(() -> {
+            if (counter[0]++ == 0) {
+                throw new IllegalStateException("fail first time.");
+            }
+            return "test";
+        }, directExecutor());
+        ListenableFuture<String> failed = supplier.getFuture();
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        // retry after failure
+        assertEquals("test", supplier.get());
+        assertEquals("test", supplier.getFuture().get());
+        assertEquals(2, counter[0]);
+    }
+
+    @Test
+    void testAsyncShared() {
+        AsyncSupplier<String> supplier = asyncLazyEx(() -> Thread.currentThread().getName());
+        assertTrue(supplier.get(Duration.ofSeconds(1)).startsWith("more-suppliers-async-"));
+    }
+
+    @Test
+    void testLazyPrimitive() {
+        int[] counter = { 0 };
+        LazyIntSupplier lazyInt = lazyInt(() -> ++counter[0]);
+        assertSame(lazyInt, lazyInt(lazyInt));
+        assertFalse(lazyInt.isInitialized());
+        assertEquals(1, lazyInt.getAsInt());
+        assertEquals(1, lazyInt.getAsInt());
+        lazyInt.tryClose();
+        assertFalse(lazyInt.isInitialized());
+        assertEquals(2, lazyInt.getAsInt());
+
+        long[] longCounter = { 0 };
+        LazyLongSupplier lazyLong = lazyLong(() -> ++longCounter[0], false);
+        assertEquals(1L, lazyLong.getAsLong());
+        lazyLong.tryClose();
+        assertTrue(lazyLong.isInitialized());
+        assertEquals(1L, lazyLong.getAsLong());
+
+        LazyDoubleSupplier lazyDouble = lazyDouble(() -> 0.5);
+        double[] present = { 0 };
+        lazyDouble.ifPresent(it -> present[0] = it);
+        assertEquals(0, present[0]);
+        assertEquals(0.5, lazyDouble.getAsDouble());
+        lazyDouble.ifPresent(it -> present[0] = it);
+        assertEquals(0.5, present[0]);
+        assertEquals("MoreSuppliers.lazyDouble(0.5)", lazyDouble.toString());
+
+        long[] closed = { 0 };
+        lazyLong.tryClose(it -> closed[0] = it);
+        assertEquals(1L, closed[0]);
+        lazyInt.tryClose(it -> closed[0] = it);
+        assertEquals(2L, closed[0]);
+        assertFalse(lazyInt.isInitialized());
+        lazyInt.tryClose(it -> closed[0] = it); // not loaded, not called
+        assertEquals(2L, closed[0]);
+    }
+}
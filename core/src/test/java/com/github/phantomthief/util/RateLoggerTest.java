@@ -53,4 +53,22 @@ class RateLoggerTest {
         }
         assertEquals(4, toStringCalled[0]);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLazy() {
+        Logger logger = LoggerFactory.getLogger("test3");
+        RateLogger rateLogger = RateLogger.perMessageRateLogger(logger);
+        int[] called = {0, 0};
+        for (int i = 0; i < 10; i++) {
+            rateLogger.atInfo().log("test1:{}, {} (EXPECTED SHOW TWICE)", () -> called[0]++, () -> "arg2");
+            rateLogger.atWarn().log(() -> "test2:" + (called[1]++) + " (EXPECTED SHOW TWICE)");
+            rateLogger.atTrace().log(() -> {
+                throw new AssertionError("trace is disabled.");
+            });
+            sleepUninterruptibly(200, MILLISECONDS);
+        }
+        assertEquals(2, called[0]);
+        assertEquals(2, called[1]);
+        rateLogger.atError().log(() -> "test3 (EXPECTED WITH EXCEPTION)", new IllegalStateException("test"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.util.RefreshingSupplier.Stats;
+
+class RefreshingSupplierTest {
+
+    @Test
+    void testExpire() {
+        AtomicInteger counter = new AtomicInteger();
+        RefreshingSupplier<Integer> supplier = RefreshingSupplier.newBuilder()
+                .expireAfter(ofMillis(100))
+                .refreshAhead(ofMillis(0))
+                .build(counter::incrementAndGet);
+        assertFalse(supplier.isPresent());
+        assertEquals(1, supplier.get());
+        assertEquals(1, supplier.get());
+        sleepUninterruptibly(150, MILLISECONDS);
+        assertFalse(supplier.isPresent());
+        assertEquals(2, supplier.get());
+        supplier.invalidate();
+        assertEquals(3, supplier.get());
+
+        Stats stats = supplier.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+        assertEquals(3, stats.getLoadCount());
+        assertEquals(0, stats.getRefreshCount());
+    }
+
+    @Test
+    void testRefreshAhead() {
+        AtomicInteger counter = new AtomicInteger();
+        RefreshingSupplier<Integer> supplier = RefreshingSupplier.newBuilder()
+                .expireAfter(ofSeconds(1))
+                .refreshAhead(ofMillis(900))
+                .executor(directExecutor())
+                .build(counter::incrementAndGet);
+        assertEquals(1, supplier.get());
+        sleepUninterruptibly(150, MILLISECONDS);
+        // served the old value, and refreshed in background
+        assertEquals(1, supplier.get());
+        assertEquals(2, supplier.get());
+        assertEquals(1, supplier.getStats().getRefreshCount());
+        assertEquals(1, supplier.getStats().getMissCount());
+    }
+
+    @Test
+    void testBackoff() {
+        AtomicInteger counter = new AtomicInteger();
+        boolean[] fail = { false };
+        RefreshingSupplier<Integer> supplier = RefreshingSupplier.newBuilder()
+                .expireAfter(ofSeconds(1))
+                .refreshAhead(ofMillis(950))
+                .backoff(ofMillis(200), ofSeconds(1))
+                .executor(directExecutor())
+                .build(() -> {
+                    counter.incrementAndGet();
+                    if (fail[0]) {
+                        throw new IllegalStateException();
+                    }
+                    return counter.get();
+                });
+        assertEquals(1, supplier.get());
+        fail[0] = true;
+        sleepUninterruptibly(100, MILLISECONDS);
+        // refresh failed, keep using the old value without retrying during backoff
+        assertEquals(1, supplier.get());
+        assertEquals(1, supplier.get());
+        assertEquals(2, counter.get());
+        assertEquals(1, supplier.getStats().getFailureCount());
+
+        supplier.invalidate();
+        IllegalStateException e = assertThrows(IllegalStateException.class, supplier::get);
+        assertSame(e, assertThrows(IllegalStateException.class, supplier::get));
+        assertEquals(3, counter.get());
+
+        fail[0] = false;
+        sleepUninterruptibly(250, MILLISECONDS);
+        assertEquals(4, supplier.get());
+        assertTrue(supplier.isPresent());
+    }
+}
@@ -20,6 +20,10 @@ import com.google.common.util.concurrent.RateLimiter;
  * SimpleRateLimiterBenchmark.guava   thrpt    5  10786111.210 ±  648463.363  ops/s
  * SimpleRateLimiterBenchmark.simple  thrpt    5  36536015.255 ± 1020655.069  ops/s
  *
+ * the results above are measured with the synchronized implementation, which is kept as
+ * {@link #synchronizedSimple()} for comparison. {@code *32}/{@code *64} are for high contention.
+ * use a permits rate high enough (e.g. 10000/s) to make period boundaries frequent.
+ *
  * @author w.vela
  * Created on 2019-11-28.
  */
@@ -34,6 +38,11 @@ public class SimpleRateLimiterBenchmark {
 
     private static final RateLimiter GUAVA = RateLimiter.create(1.0D);
     private static final SimpleRateLimiter SIMPLE = SimpleRateLimiter.create(1.0D);
+    private static final SynchronizedRateLimiter SYNCHRONIZED = new SynchronizedRateLimiter(1.0D);
+
+    private static final SimpleRateLimiter BURST = SimpleRateLimiter.create(1.0D, 100);
+    private static final SimpleRateLimiter SIMPLE_HIGH_RATE = SimpleRateLimiter.create(10000.0D);
+    private static final SynchronizedRateLimiter SYNCHRONIZED_HIGH_RATE = new SynchronizedRateLimiter(10000.0D);
 
     @Benchmark
     public static void guava() {
@@ -44,4 +53,64 @@ public class SimpleRateLimiterBenchmark {
     public static void simple() {
         SIMPLE.tryAcquire();
     }
+
+    @Benchmark
+    public static void burst() {
+        BURST.tryAcquire();
+    }
+
+    @Benchmark
+    public static void synchronizedSimple() {
+        SYNCHRONIZED.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public static void simpleHighRate32() {
+        SIMPLE_HIGH_RATE.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public static void synchronizedHighRate32() {
+        SYNCHRONIZED_HIGH_RATE.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public static void simpleHighRate64() {
+        SIMPLE_HIGH_RATE.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public static void synchronizedHighRate64() {
+        SYNCHRONIZED_HIGH_RATE.tryAcquire();
+    }
+
+    /**
+     * the previous implementation of {@link SimpleRateLimiter#tryAcquire()}, for comparison.
+     */
+    private static class SynchronizedRateLimiter {
+
+        private final long allowTimesPerNanos;
+        private volatile long lastAcquiredNanos;
+
+        SynchronizedRateLimiter(double permitsPerSecond) {
+            this.allowTimesPerNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        }
+
+        boolean tryAcquire() {
+            long nanoTime = System.nanoTime();
+            if (nanoTime >= lastAcquiredNanos + allowTimesPerNanos || lastAcquiredNanos == 0) {
+                synchronized (this) {
+                    if (nanoTime >= lastAcquiredNanos + allowTimesPerNanos || lastAcquiredNanos == 0) {
+                        lastAcquiredNanos = nanoTime;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
 }
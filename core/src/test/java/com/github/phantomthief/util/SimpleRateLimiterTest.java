@@ -1,13 +1,22 @@
 package com.github.phantomthief.util;
 
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofHours;
+import static java.time.Duration.ofMillis;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -73,4 +82,106 @@ class SimpleRateLimiterTest {
         assertFalse(limiter.tryAcquire());
         assertEquals(HOURS.toNanos(1), limiter.getAllowTimesPerNanos());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBurst() {
+        SimpleRateLimiter limiter = SimpleRateLimiter.create(10.0D, 5);
+        int j = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limiter.tryAcquire()) {
+                j++;
+            }
+        }
+        assertEquals(5, j);
+        assertEquals(15, limiter.getSkipCountAndClear());
+
+        sleepUninterruptibly(1, SECONDS);
+        assertTrue(limiter.tryAcquire(3));
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire(2));
+
+        sleepUninterruptibly(250, MILLISECONDS);
+        assertFalse(limiter.tryAcquire(3)); // all or nothing
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire(6));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(0));
+    }
+
+    @Test
+    void testBurstByPeriod() {
+        SimpleRateLimiter limiter = SimpleRateLimiter.createByPeriod(ofHours(1), 3);
+        assertEquals(3, limiter.getMaxBurst());
+        assertTrue(limiter.tryAcquire(3));
+        assertFalse(limiter.tryAcquire());
+
+        SimpleRateLimiter single = SimpleRateLimiter.create(1.0D);
+        assertFalse(single.tryAcquire(2));
+        assertTrue(single.tryAcquire(1));
+        assertFalse(single.tryAcquire(1));
+    }
+
+    @Test
+    void testAcquire() {
+        SimpleRateLimiter limiter = SimpleRateLimiter.create(10.0D);
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            limiter.acquire();
+        }
+        long cost = NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(cost >= 490 && cost < 1000, "cost:" + cost);
+        assertFalse(limiter.tryAcquire());
+
+        start = System.nanoTime();
+        assertFalse(limiter.tryAcquire(ofMillis(10)));
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+        assertTrue(limiter.tryAcquire(ofMillis(200)));
+        assertEquals(2, limiter.getSkipCountAndClear());
+    }
+
+    @Test
+    void testAcquireBurst() {
+        SimpleRateLimiter limiter = SimpleRateLimiter.create(10.0D, 3);
+        long start = System.nanoTime();
+        limiter.acquire(3);
+        limiter.acquire(2);
+        long cost = NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(cost >= 190 && cost < 600, "cost:" + cost);
+        assertFalse(limiter.tryAcquire(2, ofMillis(100)));
+        assertTrue(limiter.tryAcquire(2, ofMillis(300)));
+    }
+
+    @Test
+    void testAcquireFifo() throws InterruptedException {
+        SimpleRateLimiter limiter = SimpleRateLimiter.create(20.0D);
+        limiter.acquire();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                limiter.acquire();
+                order.add(index);
+            });
+            thread.start();
+            threads.add(thread);
+            sleepUninterruptibly(5, MILLISECONDS); // make sure the reservation order
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void testAcquireAtMost() {
+        SimpleRateLimiter limiter = SimpleRateLimiter.createByPeriod(ofHours(1), 10);
+        assertEquals(4, limiter.tryAcquireAtMost(4));
+        assertEquals(6, limiter.tryAcquireAtMost(100));
+        assertEquals(0, limiter.tryAcquireAtMost(1));
+        assertEquals(1, limiter.getSkipCountAndClear());
+
+        SimpleRateLimiter single = SimpleRateLimiter.create(1.0D);
+        assertEquals(1, single.tryAcquireAtMost(5));
+        assertEquals(0, single.tryAcquireAtMost(5));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.phantomthief.util;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowRateLimiterTest {
+
+    @Test
+    void test() {
+        SlidingWindowRateLimiter limiter = SlidingWindowRateLimiter.create(5, ofMillis(500), 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(2));
+        assertEquals(5, limiter.getCurrentCount());
+        assertEquals(2, limiter.getSkipCountAndClear());
+
+        sleepUninterruptibly(600, MILLISECONDS);
+        assertEquals(0, limiter.getCurrentCount());
+        assertTrue(limiter.tryAcquire(3));
+        assertFalse(limiter.tryAcquire(3)); // all or nothing
+        assertTrue(limiter.tryAcquire(2));
+    }
+
+    @Test
+    void testSliding() {
+        SlidingWindowRateLimiter limiter = SlidingWindowRateLimiter.create(4, ofMillis(1000), 10);
+        assertTrue(limiter.tryAcquire(2));
+        sleepUninterruptibly(500, MILLISECONDS);
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire());
+        sleepUninterruptibly(600, MILLISECONDS);
+        // the first two permits slid out of the window, the last two are still in it
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        SlidingWindowRateLimiter limiter = SlidingWindowRateLimiter.create(1000, ofMillis(60_000));
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 5000; i++) {
+            executor.execute(() -> {
+                if (limiter.tryAcquire()) {
+                    acquired.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertTrue(acquired.get() <= 1000);
+        assertTrue(acquired.get() > 900);
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.phantomthief.util;
+
+import static com.github.phantomthief.util.MoreSuppliers.lazy;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phantomthief.util.MoreSuppliers.CloseableSupplier;
+import com.github.phantomthief.util.WarmupRegistry.Report;
+
+class WarmupRegistryTest {
+
+    @Test
+    void testOrder() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CloseableSupplier<String> config = lazy(() -> record(order, "config", 50));
+        CloseableSupplier<String> db = lazy(() -> record(order, "db", 10));
+        CloseableSupplier<String> cache = lazy(() -> record(order, "cache", 10));
+        CloseableSupplier<String> service = lazy(() -> record(order, "service", 0));
+
+        WarmupRegistry registry = WarmupRegistry.newBuilder().parallelism(4).build();
+        registry.register("service", service, "db", "cache")
+                .register("db", db, "config")
+                .register("cache", cache, "config")
+                .register("config", config);
+        assertFalse(registry.isReady());
+        assertTrue(registry.awaitReady(ofSeconds(5)));
+        assertTrue(registry.isReady());
+
+        assertEquals("config", order.get(0));
+        assertEquals("service", order.get(3));
+        assertTrue(config.isInitialized());
+        assertTrue(service.isInitialized());
+
+        Report report = registry.warmUp().get();
+        assertSame(report, registry.warmUp().get());
+        assertTrue(report.isAllSuccess());
+        assertEquals(4, report.getCosts().size());
+        assertTrue(report.getCosts().get("config").toMillis() >= 50);
+        assertTrue(report.getElapsed().toMillis() >= 60);
+        assertThrows(IllegalStateException.class, () -> registry.register("other", config));
+    }
+
+    @Test
+    void testFailure() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        WarmupRegistry registry = WarmupRegistry.newBuilder().build();
+        registry.register("a", () -> {
+            throw new IllegalArgumentException();
+        }).register("b", () -> record(order, "b", 0), "a")
+                .register("c", () -> record(order, "c", 0), "b")
+                .register("d", () -> record(order, "d", 0));
+        Report report = registry.warmUp().get();
+        assertFalse(report.isAllSuccess());
+        assertEquals(3, report.getFailures().size());
+        assertTrue(report.getFailures().get("a") instanceof IllegalArgumentException);
+        assertTrue(report.getFailures().get("c") instanceof IllegalStateException);
+        assertEquals(1, report.getCosts().size());
+        assertEquals(1, order.size());
+    }
+
+    @Test
+    void testDiamondFailure() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        WarmupRegistry registry = WarmupRegistry.newBuilder().parallelism(2).build();
+        registry.register("c", () -> record(order, "c", 0), "a", "b")
+                .register("a", () -> {
+                    throw new IllegalArgumentException();
+                })
+                .register("b", () -> record(order, "b", 20));
+        Report report = registry.warmUp().get();
+        assertEquals(2, report.getFailures().size());
+        assertTrue(report.getFailures().get("c") instanceof IllegalStateException);
+        assertEquals(1, report.getCosts().size());
+        assertEquals(1, order.size());
+        assertEquals("b", order.get(0));
+    }
+
+    @Test
+    void testInvalid() {
+        WarmupRegistry registry = WarmupRegistry.newBuilder().build();
+        registry.register("a", () -> 1, "b");
+        assertThrows(IllegalArgumentException.class, () -> registry.register("a", () -> 1));
+        assertThrows(IllegalStateException.class, registry::warmUp);
+        registry.register("b", () -> 1, "c").register("c", () -> 1, "a");
+        IllegalStateException e = assertThrows(IllegalStateException.class, registry::warmUp);
+        assertTrue(e.getMessage().contains("cyclic"));
+    }
+
+    private static String record(List<String> order, String name, long sleepMs) {
+        sleepUninterruptibly(sleepMs, MILLISECONDS);
+        order.add(name);
+        return name;
+    }
+}